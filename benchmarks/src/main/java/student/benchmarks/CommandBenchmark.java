@@ -0,0 +1,80 @@
+package student.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import student.adventure.Adventure;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One command of a game through Adventure.startGameV2, the way the console game runs it. Every thread
+ * plays its own game, which starts in the starting room with a few dozen rooms visited.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandBenchmark {
+    private static final String[] GO_EAST = {"go", "East"};
+    private static final String[] GO_WEST = {"go", "West"};
+    private static final String[] TAKE = {"take", "hamburger"};
+    private static final String[] DROP = {"drop", "hamburger"};
+    private static final String[] HISTORY = {"history"};
+
+    @Param({"bundled", "100000"})
+    public String map;
+
+    private Adventure adventure;
+    private boolean east = true;
+
+    @Setup
+    public void setUp() throws IOException {
+        adventure = new Adventure();
+        adventure.loadData(new ByteArrayInputStream((MapFiles.path(map) + "\n").getBytes(StandardCharsets.UTF_8)), 0);
+        for (int i = 0; i < 64; i++) {
+            go(); // an even number of moves ends in the starting room
+        }
+    }
+
+    /**
+     * Walks back and forth between the starting room and the room East of it.
+     */
+    @Benchmark
+    public String go() {
+        String[] command = east ? GO_EAST : GO_WEST;
+        east = !east;
+        return adventure.startGameV2(command, adventure);
+    }
+
+    /**
+     * Takes the hamburger in the starting room and drops it again, so every take finds it; reported per
+     * command.
+     */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void takeAndDrop(Blackhole blackhole) {
+        blackhole.consume(adventure.startGameV2(TAKE, adventure));
+        blackhole.consume(adventure.startGameV2(DROP, adventure));
+    }
+
+    @Benchmark
+    public String history() {
+        return adventure.startGameV2(HISTORY, adventure);
+    }
+}
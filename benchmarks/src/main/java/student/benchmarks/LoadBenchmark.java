@@ -0,0 +1,61 @@
+package student.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import student.adventure.Adventure;
+import student.adventure.LoadProgress;
+import student.adventure.World;
+import student.adventure.WorldLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a map. loadWorld reads, validates and compiles the file every time, which is what the first
+ * game on a map pays; loadData is what Adventure.loadData costs once the world is cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"bundled", "1000", "100000"})
+    public String map;
+
+    private File file;
+    private byte[] pathLine;
+    private Adventure adventure;
+
+    @Setup
+    public void setUp() throws IOException {
+        String path = MapFiles.path(map);
+        file = new File(path);
+        pathLine = (path + "\n").getBytes(StandardCharsets.UTF_8);
+        adventure = new Adventure();
+    }
+
+    @Benchmark
+    public World loadWorld() throws IOException {
+        return WorldLoader.load(file, WorldLoader.Mode.AUTO, LoadProgress.NONE);
+    }
+
+    @Benchmark
+    public Adventure loadData() throws IOException {
+        adventure.loadData(new ByteArrayInputStream(pathLine), 0);
+        return adventure;
+    }
+}
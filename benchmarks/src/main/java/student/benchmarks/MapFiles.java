@@ -0,0 +1,111 @@
+package student.benchmarks;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import student.adventure.Json;
+import student.adventure.Layout;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The maps the benchmarks run on: the bundled map, or a synthetic map of a given number of rooms.
+ *
+ * A map parameter is either "bundled" or a room count such as "10000". Synthetic rooms are linked in a
+ * ring by East and West, with a North shortcut further along the ring, and every room has one item. The
+ * starting room also has a hamburger and leads East to a room that leads back West, like the bundled
+ * map, so the same commands work on every map.
+ */
+final class MapFiles {
+    /**
+     * The bundled map, relative to the repository root the benchmarks are run from.
+     */
+    static final String BUNDLED = "src/main/java/student/myAdventureMap.json";
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private MapFiles() {
+    }
+
+    /**
+     * @param map "bundled" or a number of rooms
+     * @return the path of the map file; a synthetic map is written to the temporary directory once
+     * @throws IOException if a synthetic map can't be written
+     */
+    static String path(String map) throws IOException {
+        if (map.equals("bundled")) {
+            if (!new File(BUNDLED).isFile()) {
+                throw new IOException(BUNDLED + " not found; run the benchmarks from the repository root");
+            }
+            return BUNDLED;
+        }
+
+        int rooms = Integer.parseInt(map);
+        File file = new File(System.getProperty("java.io.tmpdir"), "adventure-benchmark-" + rooms + ".json");
+        if (!file.isFile()) {
+            File partial = new File(file.getPath() + ".tmp");
+            writeSynthetic(partial, rooms);
+            if (!partial.renameTo(file) && !file.isFile()) {
+                throw new IOException("Could not create " + file);
+            }
+        }
+        return file.getPath();
+    }
+
+    /**
+     * @param map "bundled" or a number of rooms
+     * @return the layout of the map
+     * @throws IOException if the map can't be read
+     */
+    static Layout layout(String map) throws IOException {
+        return Json.readerFor(Layout.class).readValue(new File(path(map)));
+    }
+
+    private static void writeSynthetic(File file, int rooms) throws IOException {
+        if (rooms < 2) {
+            throw new IllegalArgumentException("A map needs at least two rooms");
+        }
+        try (JsonGenerator json = jsonFactory.createGenerator(file, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("startingRoom", name(0));
+            json.writeStringField("endingRoom", name(rooms - 1));
+            json.writeStringField("videoUrl", "https://example.com/win.mp4");
+            json.writeArrayFieldStart("rooms");
+            for (int i = 0; i < rooms; i++) {
+                json.writeStartObject();
+                json.writeStringField("name", name(i));
+                json.writeStringField("description", "You are in room " + i
+                        + " of a long corridor. The walls are lined with doors that all look the same.");
+                json.writeStringField("image", "https://example.com/rooms/" + i + ".jpg");
+                json.writeArrayFieldStart("directions");
+                direction(json, "East", name((i + 1) % rooms));
+                direction(json, "West", name((i + rooms - 1) % rooms));
+                if (rooms > 2) {
+                    direction(json, "North", name((int) ((i + 1 + (i * 7919L) % (rooms - 1)) % rooms)));
+                }
+                json.writeEndArray();
+                json.writeArrayFieldStart("items");
+                json.writeString("item " + i);
+                if (i == 0) {
+                    json.writeString("hamburger");
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private static void direction(JsonGenerator json, String name, String room) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("directionName", name);
+        json.writeStringField("room", room);
+        json.writeEndObject();
+    }
+
+    private static String name(int room) {
+        return "Room" + room;
+    }
+}
@@ -0,0 +1,64 @@
+package student.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import student.adventure.Json;
+import student.server.Command;
+import student.server.GameStatus;
+import student.server.Leaderboard;
+import student.server.myAdventureService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a GameStatus as JSON, the body of most responses. The game has an item in its inventory, so
+ * every kind of command option is in the status.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"bundled", "100000"})
+    public String map;
+
+    private myAdventureService service;
+    private int id;
+    private GameStatus status;
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = new myAdventureService(new Leaderboard(null, 100));
+        id = service.newGames(1, map.equals("bundled") ? null : MapFiles.layout(map)).getFirstId();
+        service.executeCommand(id, new Command("take", "hamburger"));
+        status = service.getGame(id);
+        writer = Json.writerFor(GameStatus.class);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(status);
+    }
+
+    /**
+     * What a status request does apart from HTTP: build the status, then write it.
+     */
+    @Benchmark
+    public byte[] getGameAndSerialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(service.getGame(id));
+    }
+}
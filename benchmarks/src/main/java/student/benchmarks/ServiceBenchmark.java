@@ -0,0 +1,130 @@
+package student.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import student.server.Command;
+import student.server.GameStatus;
+import student.server.InstanceRange;
+import student.server.Leaderboard;
+import student.server.myAdventureService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The service calls behind the REST endpoints, without HTTP. The service keeps games in memory only, with
+ * no journal, spilling or leaderboard file, so only the game and registry work is measured. Run it with
+ * -t to see how the calls scale with threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    /**
+     * Number of games made before the benchmark, to read and play.
+     */
+    private static final int GAMES = 10_000;
+    /**
+     * Number of games newGame makes before the service is reset, so memory stays bounded.
+     */
+    private static final int NEW_GAMES_PER_RESET = 100_000;
+
+    /**
+     * A service with GAMES games on the map.
+     */
+    @State(Scope.Benchmark)
+    public static class Games {
+        @Param({"bundled", "100000"})
+        public String map;
+
+        myAdventureService service;
+        int firstId;
+
+        @Setup
+        public void setUp() throws Exception {
+            service = new myAdventureService(new Leaderboard(null, 100));
+            InstanceRange range = service.newGames(GAMES, map.equals("bundled") ? null : MapFiles.layout(map));
+            firstId = range.getFirstId();
+        }
+
+        @TearDown
+        public void tearDown() {
+            service.reset();
+        }
+    }
+
+    /**
+     * A game of its own for every thread, walking back and forth between the starting room and the room
+     * East of it.
+     */
+    @State(Scope.Thread)
+    public static class Player {
+        private static final Command GO_EAST = new Command("go", "East");
+        private static final Command GO_WEST = new Command("go", "West");
+
+        int id;
+        boolean east = true;
+
+        @Setup
+        public void setUp(Games games) throws Exception {
+            id = games.service.newGames(1, games.map.equals("bundled") ? null : MapFiles.layout(games.map)).getFirstId();
+        }
+
+        Command next() {
+            Command command = east ? GO_EAST : GO_WEST;
+            east = !east;
+            return command;
+        }
+    }
+
+    /**
+     * An empty service to make games in.
+     */
+    @State(Scope.Benchmark)
+    public static class Empty {
+        myAdventureService service;
+
+        @Setup
+        public void setUp() throws Exception {
+            service = new myAdventureService(new Leaderboard(null, 100));
+        }
+    }
+
+    /**
+     * Makes a game on the bundled map. Every NEW_GAMES_PER_RESET games the service is reset; that cost is
+     * included, spread over the games.
+     */
+    @Benchmark
+    public int newGame(Empty empty) throws Exception {
+        int id = empty.service.newGame();
+        if (id % NEW_GAMES_PER_RESET == NEW_GAMES_PER_RESET - 1) {
+            empty.service.reset();
+        }
+        return id;
+    }
+
+    /**
+     * Reads the status of a random game.
+     */
+    @Benchmark
+    public GameStatus getGame(Games games) {
+        return games.service.getGame(games.firstId + ThreadLocalRandom.current().nextInt(GAMES));
+    }
+
+    @Benchmark
+    public void executeCommand(Games games, Player player) {
+        games.service.executeCommand(player.id, player.next());
+    }
+}
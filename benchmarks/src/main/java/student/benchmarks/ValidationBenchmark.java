@@ -0,0 +1,49 @@
+package student.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import student.adventure.Adventure;
+import student.adventure.Layout;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking a layout that is already parsed, as done for every map loaded and every bulk create.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+    @Param({"bundled", "1000", "100000"})
+    public String map;
+
+    private Layout layout;
+    private Adventure adventure;
+
+    @Setup
+    public void setUp() throws IOException {
+        layout = MapFiles.layout(map);
+        adventure = new Adventure();
+        if (!adventure.isSchemaValid(layout)) {
+            throw new IllegalStateException("The " + map + " map is not valid");
+        }
+    }
+
+    @Benchmark
+    public boolean isSchemaValid() {
+        return adventure.isSchemaValid(layout);
+    }
+}
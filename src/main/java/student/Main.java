@@ -5,10 +5,11 @@ import student.adventure.Adventure;
 import student.server.AdventureResource;
 import student.server.AdventureServer;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Scanner;
 
 public class Main {
@@ -23,31 +24,30 @@ public class Main {
         ByteArrayInputStream input = new ByteArrayInputStream(data.getBytes());
         adventure.loadData(input, adventure.getInstanceID());
 
-        String[] inputArray = {"Start", "Game"};
-        String resultOfDecision2 = adventure.startGameV2(inputArray, adventure);
+        // the console is written in whole prompts, flushed before each read
+        Writer console = new BufferedWriter(new OutputStreamWriter(System.out));
+        adventure.printRoomInformation(console);
+        console.write("> ");
+        console.flush();
+        String resultOfDecision2 = " ";
+        // one scanner for the whole game; a new one per line would lose what the last one had buffered
+        Scanner userInputReader = new Scanner(System.in);
 
         while (!resultOfDecision2.equals("Exit Game") && !resultOfDecision2.equals("User Wins")) {
-            // process System.in or user input here and refine it into
-            // String[] input which will be used in adventure.startGameV2(input, adventure)
-            Scanner userInputReader = new Scanner(System.in);
+            // the command table reads the line as it is; no splitting or lowercasing needed here
             String userInput = userInputReader.nextLine();
-            String[] inputToArray = userInput.toLowerCase().split("\\W+");
 
-            // remove spaces before command. Have to convert array to list and back to array.
-            ArrayList inputToList = removeSpacesAtFront(inputToArray);
-            inputToArray = new String[inputToList.size()];
-            inputToList.toArray(inputToArray);
-
-            resultOfDecision2 = adventure.startGameV2(inputToArray, adventure);
+            resultOfDecision2 = adventure.execute(userInput);
 
             if (!(resultOfDecision2.equals("keep going")
                     || resultOfDecision2.equals("Took an item")
                     || resultOfDecision2.equals("Dropped an item"))) {
-                System.out.println(resultOfDecision2); // for ex, "I can't go XXX" or "I don't understand ~"
+                console.write(resultOfDecision2 + System.lineSeparator()); // for ex, "I can't go XXX" or "I don't understand ~"
             }
 
             if (resultOfDecision2.equals("You've made it on time to code review; you win!")
                     || resultOfDecision2.equals("Exit Game")) {
+                console.flush();
                 break;
             }
 
@@ -58,22 +58,13 @@ public class Main {
                     resultOfDecision2.contains("There is no item ") || resultOfDecision2.contains("You don't have ") ||
                     resultOfDecision2.contains("I don't understand ") || resultOfDecision2.contains("I can't go") ||
                     resultOfDecision2.contains("Your history rooms: ")) {
-                System.out.print("> ");
+                console.write("> ");
             }
             else {
-                adventure.printRoomInformation();//check
-                System.out.print("> ");
-            }
-        }
-    }
-
-    private static ArrayList removeSpacesAtFront(String[] inputToArray) {
-        ArrayList inputToList = new ArrayList(Arrays.asList(inputToArray));
-        for (int i = 0; i < inputToList.size(); i++) {
-            if (inputToList.get(i).equals("")) {
-                inputToList.remove(i);
+                adventure.printRoomInformation(console);
+                console.write("> ");
             }
+            console.flush();
         }
-        return inputToList;
     }
 }
\ No newline at end of file
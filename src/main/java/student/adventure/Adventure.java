@@ -1,62 +1,145 @@
 package student.adventure;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.util.*;
-import static java.util.Arrays.asList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is the class that controls everything needed to play the game.
  */
 public class Adventure {
-    private Layout layout;
-    private Layout.Room[] rooms;
-    private String currentRoom;
-    private Layout.Room currentRoomObject;
+    /**
+     * Worlds that have been loaded, by path. A map is parsed once and then shared by every game.
+     */
+    private static final Map<String, World> worlds = new ConcurrentHashMap<>();
+    private static final Map<String, Long> loadNanos = new ConcurrentHashMap<>(); // of the world in worlds
+    /**
+     * The most rooms shown when the history is printed or sent to a client.
+     */
+    public static final int HISTORY_VIEW_SIZE = 20;
+    /**
+     * The result of the move that reaches the ending room.
+     */
+    public static final String WIN_MESSAGE = "You've made it on time to code review; you win!";
+
+    private World world;
+    private int currentRoomId;
+    // items of the rooms this game has changed; every other room still has the items of the world
+    private Map<Integer, List<String>> changedItems = new HashMap<>();
     private List<String> inventory = new LinkedList<>();
-    private List<String> history = new LinkedList<>();
+    private RoomHistory history;
+    // the text of the room shown last, kept until the player is in another room or its items change
+    private String roomText;
+    private int roomTextRoomId = World.NO_ROOM;
+    // reads the commands of startGame(); kept, since a new scanner per call would lose buffered input
+    private Scanner commandScanner;
+    private InputStream commandInput;
     public void setInventory(List<String> inventory) {
         this.inventory = inventory;
     }
     private int instanceID;
-    private List<String> directions = new ArrayList<>();
+
+    public Adventure() {
+        history = new RoomHistory();
+    }
+
+    /**
+     * Start a new game in a world that has already been loaded.
+     * @param world the shared world to play in
+     * @param id An id for each Adventure instance
+     */
+    public Adventure(World world, int id) {
+        this(world, id, RoomHistory.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Start a new game in a world that has already been loaded.
+     * @param world the shared world to play in
+     * @param id An id for each Adventure instance
+     * @param historyCapacity the number of most recent rooms to remember
+     */
+    public Adventure(World world, int id, int historyCapacity) {
+        history = new RoomHistory(historyCapacity);
+        start(world);
+        this.instanceID = id;
+    }
 
     public List<String> getInventory() {
         return inventory;
     }
 
     public String getCurrentRoom() {
-        return currentRoom;
+        return world.getRoomName(currentRoomId);
     }
 
-    public Layout.Room getCurrentRoomObject() {
-        return currentRoomObject;
+    public int getCurrentRoomId() {
+        return currentRoomId;
     }
 
-    public List<String> getDirections() {
-        return directions;
+    public String getCurrentRoomDescription() {
+        return world.getDescription(currentRoomId);
     }
 
-    public static Adventure findInstanceWithID(ArrayList<Adventure> adventures, int id) {
-        return adventures.stream()
-                .filter(adventure -> id == adventure.getInstanceID())
-                .findFirst()
-                .orElse(null);
+    public String getCurrentRoomImage() {
+        return world.getImage(currentRoomId);
+    }
+
+    /**
+     * Get the items that are in the current room in this game.
+     * @return an unmodifiable list of item names
+     */
+    public List<String> getCurrentRoomItems() {
+        List<String> items = changedItems.get(currentRoomId);
+        return items == null ? world.getItems(currentRoomId) : Collections.unmodifiableList(items);
+    }
+
+    public List<String> getDirections() {
+        return world.getDirectionNames(currentRoomId);
     }
 
     public int getInstanceID() {
         return instanceID;
     }
 
+    /**
+     * Get the most recently visited rooms, at most HISTORY_VIEW_SIZE of them.
+     * @return room names, oldest first
+     */
     public List<String> getHistory() {
+        return roomNames(history.tail(HISTORY_VIEW_SIZE));
+    }
+
+    /**
+     * Get a page of the visited rooms. Visits are numbered from 0; visits older than the history capacity
+     * are no longer kept and are skipped.
+     * @param fromVisit the number of the first visit wanted
+     * @param limit the most rooms to return
+     * @return room names, oldest first
+     */
+    public List<String> getHistory(long fromVisit, int limit) {
+        return roomNames(history.page(fromVisit, limit));
+    }
+
+    public RoomHistory getRoomHistory() {
         return history;
     }
 
-    public Layout getLayout() {
-        return layout;
+    private List<String> roomNames(int[] roomIds) {
+        List<String> names = new ArrayList<>(roomIds.length);
+        for (int roomId : roomIds) {
+            names.add(world.getRoomName(roomId));
+        }
+        return names;
+    }
+
+    public World getWorld() {
+        return world;
     }
 
     /**
@@ -69,30 +152,9 @@ public class Adventure {
         // make a file out of user's input which is file path
         Scanner scanner = new Scanner(userInput);
         String pathName = scanner.nextLine();
-        File file;
 
-        // check if file is valid
-        try {
-            file = new File(pathName);
-            layout = new ObjectMapper().readValue(file, Layout.class);
-        }catch(Exception e) {
-            System.out.println("You path is invalid!");
-            throw new FileNotFoundException();
-        }
-
-        // check if scheme is valid
-        if(!isSchemaValid(layout)) {
-            System.out.println("Your Scheme is not valid!");
-            throw new IllegalArgumentException();
-        }
-
-        // initialize some useful variables
-        rooms = layout.getRooms();
-        currentRoom = layout.getStartingRoom();
-        setCurrentRoomObject(currentRoom);
-        history.add(currentRoom);
+        start(loadWorld(pathName));
         this.instanceID = id;
-        addDirection();
     }
 
     /**
@@ -104,59 +166,166 @@ public class Adventure {
         // make a file out of user's input which is file path
         Scanner scanner = new Scanner(userInput);
         String pathName = scanner.nextLine();
-        File file;
+
+        start(loadWorld(pathName));
+    }
+
+    /**
+     * Load the world of a json file. Each file is only read and parsed the first time it is asked for;
+     * after that the same world is returned, since worlds never change.
+     * @param pathName A path to json file
+     * @return the world described by the file
+     * @throws FileNotFoundException if the file can't be read or parsed
+     * @throws IllegalArgumentException if the layout in the file is not valid
+     */
+    public static World loadWorld(String pathName) throws FileNotFoundException {
+        return loadWorld(pathName, LoadProgress.NONE);
+    }
+
+    /**
+     * Load the world of a json file, see loadWorld(String). Large files are streamed room by room.
+     * @param pathName A path to json file
+     * @param progress where to report loading progress and the time of each phase
+     * @return the world described by the file
+     * @throws FileNotFoundException if the file can't be read or parsed
+     * @throws IllegalArgumentException if the layout in the file is not valid
+     */
+    public static World loadWorld(String pathName, LoadProgress progress) throws FileNotFoundException {
+        World world = worlds.get(pathName);
+        if (world != null) {
+            return world;
+        }
 
         // check if file is valid
+        long start = System.nanoTime();
         try {
-            file = new File(pathName);
-            layout = new ObjectMapper().readValue(file, Layout.class);
-        }catch(Exception e) {
+            world = WorldLoader.load(new File(pathName), WorldLoader.Mode.AUTO, progress);
+        } catch (IllegalArgumentException e) {
+            // check if scheme is valid
+            System.out.println("Your Scheme is not valid!");
+            System.out.println(e.getMessage());
+            throw e;
+        } catch(Exception e) {
             System.out.println("You path is invalid!");
             throw new FileNotFoundException();
         }
 
-        // check if scheme is valid
-        if(!isSchemaValid(layout)) {
-            System.out.println("Your Scheme is not valid!");
-            throw new IllegalArgumentException();
+        World loaded = worlds.putIfAbsent(pathName, world);
+        if (loaded != null) {
+            return loaded;
         }
+        loadNanos.put(pathName, System.nanoTime() - start);
+        return world;
+    }
 
-        // initialize some useful variables
-        rooms = layout.getRooms();
-        currentRoom = layout.getStartingRoom();
-        setCurrentRoomObject(currentRoom);
-        history.add(currentRoom);
-        addDirection();
+    /**
+     * Get how long loading the world of a json file took, see loadWorld(String).
+     * @param pathName A path to json file
+     * @return the time in nanoseconds, or -1 if the file was not loaded yet
+     */
+    public static long getLoadNanos(String pathName) {
+        Long nanos = loadNanos.get(pathName);
+        return nanos == null ? -1 : nanos;
     }
 
     /**
-     * Check if a layout is valid.
-     * @param layout is objects in Json file
-     * @return true if a scheme is valid, otherwise false
+     * Put the player at the starting room of a world with empty inventory and history.
+     * @param world the world to play in
      */
-    public boolean isSchemaValid(Layout layout) {
-        // check if layout has valid object
-        if (layout.getStartingRoom() == null || layout.getEndingRoom() == null
-        || layout.getRooms() == null || layout.getRooms().length < 2) {
-            return false;
+    private void start(World world) {
+        this.world = world;
+        currentRoomId = world.getStartingRoomId();
+        changedItems.clear();
+        roomText = null;
+        inventory.clear();
+        history.clear();
+        history.add(currentRoomId);
+    }
+
+    /**
+     * Write the state of this game compactly: its position, inventory, changed rooms and history, but
+     * not its world, which is shared. The size depends on the history capacity and the items moved,
+     * never on how long the game has been played.
+     * @param out where to write the state
+     * @throws IOException if the state can't be written
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(instanceID);
+        out.writeInt(currentRoomId);
+        writeStrings(out, inventory);
+        out.writeInt(changedItems.size());
+        for (Map.Entry<Integer, List<String>> room : changedItems.entrySet()) {
+            out.writeInt(room.getKey());
+            writeStrings(out, room.getValue());
+        }
+
+        int[] kept = history.tail(history.size());
+        out.writeInt(history.getCapacity());
+        out.writeLong(history.getVisitCount());
+        out.writeInt(kept.length);
+        for (int roomId : kept) {
+            out.writeInt(roomId);
         }
+    }
 
-        // check if each room has valid object
-        for (Layout.Room room : layout.getRooms()) {
-            if (room.getName() == null || room.getName().equals("") || room.getDescription() == null ||
-                   room.getDescription().equals("") || room.getDirections() == null || room.getDirections().length == 0) {
-                return false;
-            }
+    /**
+     * Read a game written by writeState().
+     * @param world the world the game was played in; room ids are only valid in that world
+     * @param in where to read the state from
+     * @return the game
+     * @throws IOException if the state can't be read
+     */
+    public static Adventure readState(World world, DataInput in) throws IOException {
+        int id = in.readInt();
+        int roomId = in.readInt();
+        List<String> inventory = readStrings(in);
+        Map<Integer, List<String>> changedItems = new HashMap<>();
+        for (int rooms = in.readInt(); rooms > 0; rooms--) {
+            int changedRoom = in.readInt();
+            changedItems.put(changedRoom, readStrings(in));
+        }
+
+        int capacity = in.readInt();
+        long visitCount = in.readLong();
+        int[] kept = new int[in.readInt()];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = in.readInt();
+        }
+        if (roomId < 0 || roomId >= world.getRoomCount()) {
+            throw new IOException("Saved game " + id + " is in room " + roomId + ", which the world does not have");
+        }
+
+        Adventure adventure = new Adventure(world, id, capacity);
+        adventure.currentRoomId = roomId;
+        adventure.inventory.addAll(inventory);
+        adventure.changedItems.putAll(changedItems);
+        adventure.history.restore(visitCount, kept);
+        return adventure;
+    }
 
-            // check each direction of a room
-            for (Layout.Room.Direction direction : room.getDirections()) {
-                if (direction.getDirectionName() == null || direction.getDirectionName().equals("")
-                || direction.getRoom() == null | direction.getRoom().equals("")) {
-                    return false;
-                }
-            }
+    private static void writeStrings(DataOutput out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
         }
-        return true;
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    /**
+     * Check if a layout is valid.
+     * @param layout is objects in Json file
+     * @return true if a scheme is valid, otherwise false
+     */
+    public boolean isSchemaValid(Layout layout) {
+        return LayoutValidator.validate(layout).isEmpty();
     }
 
     /**
@@ -166,57 +335,124 @@ public class Adventure {
      * @return String that is corresponding to input.
      */
     public String startGameV2(String[] input, Adventure adventure) {
+        if (input.length == 0) {
+            return notUnderstood("");
+        }
+
         // the first run of the game
-        if (input[0].equals("Start") && input[1].equals("Game")) {
+        if (input.length == 2 && input[0].equals("Start") && input[1].equals("Game")) {
             printRoomInformation();//check
             System.out.print("> ");
             return " ";
         }
 
-        // when Array input has more than two strings, reconstruct them so that
-        // input always consist of two arrays. Ex: "take frontdoor key" has three strings.
-        // Make it "take" and "frontdoor key"
-        if (input.length > 1) {
-            String[] commandValue = Arrays.copyOfRange(input, 1, input.length);
-            String commandValueString = String.join(" ", commandValue);
-            input = new String[]{input[0], commandValueString};
+        CommandType type = CommandTable.lookup(input[0]);
+        if (type == null || (type.needsValue() && input.length == 1)) {
+            return notUnderstood(String.join(" ", input));
         }
 
-        // take care of invalid inputs by user
-        if ((input.length == 1 || input.length >= 3)
-                && !(input[0].equals("quit") || input[0].equals("exit"))
-                && !input[0].equals("examine")
-                && !input[0].equals("history")) {
-            return ("I don't understand \"" + String.join(" ", input) + "\"!");
+        // Ex: "take frontdoor key" may come as three strings; everything after the command is its value
+        String commandValue;
+        if (input.length == 1) {
+            commandValue = "";
+        } else if (input.length == 2) {
+            commandValue = input[1];
+        } else {
+            commandValue = String.join(" ", Arrays.asList(input).subList(1, input.length));
         }
+        return execute(type, commandValue);
+    }
 
-        // from here, input[0] is command and input[1] is commandvalue
-        // ex. go East:  go is command and East is value
-        if (input[0].contains("quit") || input[0].contains("exit")) {
-            return "Exit Game";
-        }
+    /**
+     * Run a command that was typed as one line, e.g. "go   East" or "take frontdoor key".
+     * @param line the line the user typed
+     * @return String that is corresponding to input.
+     */
+    public String execute(CharSequence line) {
+        int verbStart = CommandTable.skipSeparators(line, 0);
+        int verbEnd = CommandTable.skipWord(line, verbStart);
+        CommandType type = CommandTable.lookup(line, verbStart, verbEnd);
+        String value = CommandTable.normalize(line, verbEnd, line.length());
 
-        if (input[0].contains("examine")) {
-            return "keep going";
+        if (type == null || (type.needsValue() && value.isEmpty())) {
+            return notUnderstood(CommandTable.normalize(line, verbStart, line.length()));
         }
+        return execute(type, value);
+    }
 
-        if (input[0].contains("go")) {
-            return goNextRoom(input[1]);
-        }
+    /**
+     * Run a command whose name and value are already separate, as they are for the server.
+     * @param commandName the command, e.g. "go"; case does not matter
+     * @param commandValue the value of the command, e.g. "East"; case does not matter
+     * @return String that is corresponding to input.
+     */
+    public String execute(String commandName, String commandValue) {
+        CommandType type = CommandTable.lookup(commandName);
+        String value = CommandTable.normalize(commandValue);
 
-        if (input[0].contains("take")) {
-            return pickItem(input[1]);
+        if (type == null || (type.needsValue() && value.isEmpty())) {
+            String command = value.isEmpty() ? commandName : commandName + " " + commandValue;
+            return notUnderstood(command);
         }
+        return execute(type, value);
+    }
 
-        if (input[0].contains("drop")) {
-            return dropItem(input[1]);
+    /**
+     * Run a command that has been looked up in the CommandTable.
+     * @param type the command
+     * @param value the lowercased value of the command, "" if there is none
+     * @return String that is corresponding to input.
+     */
+    public String execute(CommandType type, String value) {
+        switch (type) {
+            case GO:
+                return goNextRoom(value);
+            case TAKE:
+                return pickItem(value);
+            case DROP:
+                return dropItem(value);
+            case EXAMINE:
+                return "keep going";
+            case HISTORY:
+                return showHistory();
+            case QUIT:
+                return "Exit Game";
+            default:
+                return notUnderstood(value);
         }
+    }
 
-        if (input[0].contains("history")) {
-            return showHistory();
-        }
+    private static String notUnderstood(CharSequence command) {
+        return "I don't understand \"" + command + "\"!";
+    }
 
-        return "";
+    /**
+     * Check whether a result of execute() means the player just reached the ending room.
+     * @param result a result of execute()
+     * @return true if the command won the game
+     */
+    public static boolean isWin(String result) {
+        return result.equals(WIN_MESSAGE);
+    }
+
+    /**
+     * Check whether a result of execute() means the command was not understood.
+     * @param result a result of execute()
+     * @return true if the command was not understood
+     */
+    public static boolean isNotUnderstood(String result) {
+        return result.startsWith("I don't understand ");
+    }
+
+    /**
+     * Check whether a result of execute() means the command could not be done and nothing changed,
+     * e.g. going in a direction the room does not have. Commands that were not understood count too.
+     * @param result a result of execute()
+     * @return true if the command failed
+     */
+    public static boolean isFailure(String result) {
+        return isNotUnderstood(result) || result.startsWith("I can't go ")
+                || result.startsWith("There is no item ") || result.startsWith("You don't have ");
     }
 
     /**
@@ -226,7 +462,10 @@ public class Adventure {
      * @return the result of decision
      */
     public String startGame(InputStream inputStream, String resultOfDecision, Adventure adventure) {
-        Scanner scanner = new Scanner(inputStream);
+        if (inputStream != commandInput) {
+            commandScanner = new Scanner(inputStream);
+            commandInput = inputStream;
+        }
 
         // when user takes or drops item, show follow-up prompt for next user's command w/o showing description again.
         // likewise, if user made invalid decision or if there's no item in room or inventory,
@@ -246,44 +485,12 @@ public class Adventure {
         }
 
         // get user's command
-        String userInput = scanner.nextLine(); // ex. go <direction> , take <item>
-        String loweredUserInput = userInput.toLowerCase();
-
-        // when user wants to quit a game
-        if (loweredUserInput.equals("quit") || loweredUserInput.equals("exit")) {
-            return "Exit Game";
-        }
-
-        // when user wants room information again
-        if (loweredUserInput.equals("examine")) {
-            return "keep going";
-        }
-
-        // when user chooses to move
-        if (loweredUserInput.contains("go ")) {
-            return goNextRoom(userInput);
-        }
-
-        // when user picks up an item. when picking or dropping an item, should wait for next command
-        if (userInput.contains("take ")) {
-           return pickItem(userInput);
-        }
-
-        // when user drops an item
-        if (userInput.contains("drop ")) {
-            return dropItem(userInput);
-        }
-
-        if (userInput.equals("show history")) {
-            return showHistory();
-        }
-
-        // if none is selected, user's command is undefined one
-        return "I don't understand \"" + userInput + "\"!";
+        String userInput = commandScanner.nextLine(); // ex. go <direction> , take <item>
+        return execute(userInput);
     } //startGame
 
     private String showHistory() {
-        return "Your history rooms: " + Arrays.toString(history.toArray());
+        return "Your history rooms: " + getHistory();
     }
 
     /**
@@ -323,13 +530,7 @@ public class Adventure {
      * @param userDropItem the item user wants to drop at room
      */
     private void addItemToRoom(String userDropItem) {
-        List<String> itemList = new java.util.ArrayList<>(Arrays.asList(currentRoomObject.getItems()));
-        itemList.add(userDropItem);
-
-        // make array to temporarily save itemList.toArray
-        // and use it to set updated item list of the room
-        String[] array = new String[itemList.size()];
-        currentRoomObject.setItems(itemList.toArray(array));
+        changeItems().add(userDropItem);
     }
 
     /**
@@ -338,37 +539,21 @@ public class Adventure {
      * @return a result of user's decision
      */
     public String goNextRoom(String userInput) {
-        // check is chosen direction is valid
-        if (isValidDirection(userInput)) {
-            // if valid direction, update currentRoom as the next room that the direction is pointing at
-            currentRoom = findNextRoom(userInput);
-
-            history.add(currentRoom);
-
-            directions.clear();
-            addDirection();
-
-            // if next Room is ending room, print out win sign and exit game
-            if (currentRoom.equals(layout.getEndingRoom())) {
-                return "You've made it on time to code review; you win!";
-            }
-
-            setCurrentRoomObject(currentRoom);
-
-            return "keep going";
-
-        } else {
+        // only the exits of the current room are looked at
+        int nextRoomId = world.findNextRoomId(currentRoomId, userInput);
+        if (nextRoomId == World.NO_ROOM) {
             return "I can't go \"" + userInput + "\"!";
         }
-    }
 
-    /**
-     * Add possible direction at currentRoomObject to directions.
-     */
-    private void addDirection() {
-        for (Layout.Room.Direction direction : currentRoomObject.getDirections()) {
-            directions.add(direction.getDirectionName());
+        currentRoomId = nextRoomId;
+        history.add(currentRoomId);
+
+        // if next Room is ending room, print out win sign and exit game
+        if (currentRoomId == world.getEndingRoomId()) {
+            return WIN_MESSAGE;
         }
+
+        return "keep going";
     }
 
     /**
@@ -376,14 +561,22 @@ public class Adventure {
      * @param userItem an item that user wants to take
      */
     private void deleteItemFromRoom(String userItem) {
-        // make itemList to use remove function
-        List<String> itemList = new java.util.ArrayList<>(Arrays.asList(currentRoomObject.getItems()));
-        itemList.remove(userItem);
+        changeItems().remove(userItem);
+    }
 
-        // make array to temporarily save itemList.toArray
-        // and use it to set updated item list of the room
-        String[] array = new String[itemList.size()];
-        currentRoomObject.setItems(itemList.toArray(array));
+    /**
+     * Get the items of the current room for changing. The items of the world are shared by all games,
+     * so the first change to a room copies its items into this game.
+     * @return this game's own item list of the current room
+     */
+    private List<String> changeItems() {
+        roomText = null;
+        List<String> items = changedItems.get(currentRoomId);
+        if (items == null) {
+            items = new ArrayList<>(world.getItems(currentRoomId));
+            changedItems.put(currentRoomId, items);
+        }
+        return items;
     }
 
     /**
@@ -392,7 +585,7 @@ public class Adventure {
      * @return true if valid, otherwise false
      */
     private boolean isValidItemRoom(String userItem) {
-        for (String item : currentRoomObject.getItems()) {
+        for (String item : getCurrentRoomItems()) {
             if (item.toLowerCase().equals(userItem)) {
                 return true;
             }
@@ -401,117 +594,75 @@ public class Adventure {
     }
 
     /**
-     * Set variable currentRoomObject corresponding to String currentRoom.
-     * @param currentRoom where a user currently is at
+     * Move the player to the room with the given name. Unknown names are ignored.
+     * @param currentRoom the name of the room to move to
      */
     public void setCurrentRoomObject(String currentRoom) {
-        for (Layout.Room room : rooms) {
-            // find a room with the name of String currentRoom
-            if (room.getName().equals(currentRoom)) {
-                currentRoomObject = room;
-            }
+        int roomId = world.getRoomId(currentRoom);
+        if (roomId != World.NO_ROOM) {
+            currentRoomId = roomId;
         }
     }
 
     /**
      * find a room corresponding to a direction user choose at currentRoom
      * @param userDirection a direction use chose
-     * @return name of a next room
+     * @return name of a next room, or null if the direction is not valid
      */
     public String findNextRoom(String userDirection) { //userDirection here is lowercased.
-        String nextRoom = null;
-        for (Layout.Room.Direction direction : currentRoomObject.getDirections()) {
-            if (direction.getDirectionName().toLowerCase().equals(userDirection)) {
-                nextRoom =  direction.getRoom();
-            }
-        }
-        return nextRoom;
+        int nextRoomId = world.findNextRoomId(currentRoomId, userDirection);
+        return nextRoomId == World.NO_ROOM ? null : world.getRoomName(nextRoomId);
     }
 
     /**
-     * Check if a direction user chose is valid one.
-     * @param userDirection a direction that use chose
-     * @return true if valid, otherwise false
+     * Get the text the console shows for the current room: its description, the directions and the
+     * visible items, each line ending with the line separator. The text is rendered again only when the
+     * player moves or the items of the room change.
+     * @return the text of the current room
      */
-    private boolean isValidDirection(String userDirection) {
-        // check each room
-        for (Layout.Room room : rooms) {
-            // find a room with the name of String currentRoom
-            if (room.getName().equals(currentRoom)) {
-                // check each direction that the room has
-                for (Layout.Room.Direction direct : room.getDirections()) {
-                    // if the room has given direction as one of its directions, return true
-                    if (direct.getDirectionName().toLowerCase().equals(userDirection)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+    public String getRoomText() {
+        if (roomText == null || roomTextRoomId != currentRoomId) {
+            RoomText text = RoomText.of(world);
+            List<String> items = changedItems.get(currentRoomId);
+            roomText = RoomText.render(getCurrentRoomDescription(), text.directions(currentRoomId),
+                    items == null ? text.items(currentRoomId) : RoomText.items(items));
+            roomTextRoomId = currentRoomId;
+        }
+        return roomText;
     }
 
     /**
      * Print currentRoom's information
      */
     public void printRoomInformation() {
-        for (Layout.Room room : rooms) {
-            if (room.getName().equals(currentRoom)) {
-                System.out.println(currentRoomObject.getDescription());
-                printRoomDirections();
-                printRoomItems();
-                break;
-            }
-        }
+        System.out.print(getRoomText());
+    }
+
+    /**
+     * Write currentRoom's information, e.g. to a buffered console writer; the writer is not flushed.
+     * @param out where to write
+     * @throws IOException if the text can't be written
+     */
+    public void printRoomInformation(Writer out) throws IOException {
+        out.write(getRoomText());
     }
 
     /**
      * Print currentRoom's directions
      */
     public void printRoomDirections() {
-        System.out.print("From here you can go: ");
-
-        //print out the directions I can go from the room
-        int numOfDirections = currentRoomObject.getDirections().length;
-        for (Layout.Room.Direction direction : currentRoomObject.getDirections()) {
-            // the last element of an array
-            if (asList(currentRoomObject.getDirections()).indexOf(direction) == numOfDirections - 1) { //the last element
-                System.out.println(direction.getDirectionName());
-            }
-            // the second from the last
-            else if (asList(currentRoomObject.getDirections()).indexOf(direction) == numOfDirections - 2) { //second from the last
-                System.out.print(direction.getDirectionName() + " or " );
-            }
-            else {
-                System.out.print(direction.getDirectionName() + ", ");
-            }
-        }
+        System.out.println(RoomText.of(world).directions(currentRoomId));
     }
 
     /**
      * Print items of currentRoom
      */
     public void printRoomItems() {
+        List<String> items = changedItems.get(currentRoomId);
+        String line = items == null ? RoomText.of(world).items(currentRoomId) : RoomText.items(items);
         //if no item available, don't print "Items visible:"
-        int numOfItems = currentRoomObject.getItems().length;
-        if (numOfItems < 1) {
-            return;
-        }
-
-        System.out.print("Items visible: ");
-        for (int i = 0; i < numOfItems; i++) {
-            // the last element of an array
-            if (i == numOfItems - 1) {
-                System.out.println(currentRoomObject.getItems()[i]);
-            }
-            // the second element from the last
-            else if (i == numOfItems - 2) {
-                System.out.print(currentRoomObject.getItems()[i] + " or ");
-            }
-            else {
-                System.out.print(currentRoomObject.getItems()[i] + ", ");
-            }
+        if (!line.isEmpty()) {
+            System.out.println(line);
         }
     }
-
-
 }
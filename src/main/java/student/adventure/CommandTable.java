@@ -0,0 +1,173 @@
+package student.adventure;
+
+/**
+ * The verbs the game understands and the helpers to pull them out of a line of input.
+ *
+ * Verbs and their aliases are stored once in a small open-addressing table. A verb is looked up straight
+ * from a range of the input, ignoring case, so neither the console nor the server has to split, copy or
+ * lowercase a command before it knows what the command is.
+ *
+ * Input is read the way the console always has: words are runs of letters, digits and underscores, and
+ * anything else only separates words.
+ */
+public final class CommandTable {
+    private static final int TABLE_SIZE = 32; // a power of two, well above the number of verbs
+
+    private static final String[] verbs = new String[TABLE_SIZE];
+    private static final CommandType[] types = new CommandType[TABLE_SIZE];
+
+    static {
+        add("go", CommandType.GO);
+        add("take", CommandType.TAKE);
+        add("drop", CommandType.DROP);
+        add("examine", CommandType.EXAMINE);
+        add("history", CommandType.HISTORY);
+        add("show", CommandType.HISTORY); // "show history"
+        add("quit", CommandType.QUIT);
+        add("exit", CommandType.QUIT);
+    }
+
+    private CommandTable() {
+    }
+
+    private static void add(String verb, CommandType type) {
+        int slot = hash(verb, 0, verb.length()) & (TABLE_SIZE - 1);
+        while (verbs[slot] != null) {
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+        verbs[slot] = verb;
+        types[slot] = type;
+    }
+
+    /**
+     * Find the command for a verb, ignoring case.
+     * @param verb a verb like "go" or "EXIT"
+     * @return the command, or null if the verb is not known
+     */
+    public static CommandType lookup(String verb) {
+        return verb == null ? null : lookup(verb, 0, verb.length());
+    }
+
+    /**
+     * Find the command for the verb text[start, end), ignoring case.
+     * @param text the text that holds the verb
+     * @param start index of the first character of the verb
+     * @param end index after the last character of the verb
+     * @return the command, or null if the verb is not known
+     */
+    public static CommandType lookup(CharSequence text, int start, int end) {
+        int length = end - start;
+        for (int slot = hash(text, start, end) & (TABLE_SIZE - 1); verbs[slot] != null;
+             slot = (slot + 1) & (TABLE_SIZE - 1)) {
+            String verb = verbs[slot];
+            if (verb.length() == length && matches(verb, text, start)) {
+                return types[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Skip separators.
+     * @param text the input
+     * @param from where to start
+     * @return the index of the next word character, or text.length() if there is none
+     */
+    public static int skipSeparators(CharSequence text, int from) {
+        int i = from;
+        while (i < text.length() && !isWordChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Skip a word.
+     * @param text the input
+     * @param from where the word starts
+     * @return the index after the last character of the word
+     */
+    public static int skipWord(CharSequence text, int from) {
+        int i = from;
+        while (i < text.length() && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Turn the words of text[start, end) into a lowercased value with single spaces between words,
+     * e.g. "  FrontDoor   key " becomes "frontdoor key". Values that are already in that form are
+     * returned as a plain substring.
+     * @param text the input
+     * @param start index to start at
+     * @param end index to stop at
+     * @return the normalized value, or "" if there are no words
+     */
+    public static String normalize(CharSequence text, int start, int end) {
+        start = skipSeparators(text, start);
+        while (end > start && !isWordChar(text.charAt(end - 1))) {
+            end--;
+        }
+        if (isNormalized(text, start, end)) {
+            return text.subSequence(start, end).toString();
+        }
+
+        char[] value = new char[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (isWordChar(c)) {
+                value[length++] = toLower(c);
+            } else if (value[length - 1] != ' ') {
+                value[length++] = ' ';
+            }
+        }
+        return new String(value, 0, length);
+    }
+
+    /**
+     * Normalize a whole value, see normalize(CharSequence, int, int).
+     * @param text the value, may be null
+     * @return the normalized value, or "" if there are no words
+     */
+    public static String normalize(String text) {
+        return text == null ? "" : normalize(text, 0, text.length());
+    }
+
+    private static boolean isNormalized(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            boolean separator = c == ' ' && text.charAt(i - 1) != ' ';
+            if (!separator && (!isWordChar(c) || toLower(c) != c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String verb, CharSequence text, int start) {
+        for (int i = 0; i < verb.length(); i++) {
+            if (verb.charAt(i) != toLower(text.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + toLower(text.charAt(i));
+        }
+        return h ^ (h >>> 7);
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static char toLower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,26 @@
+package student.adventure;
+
+/**
+ * The kinds of commands a player can give.
+ */
+public enum CommandType {
+    GO(true),
+    TAKE(true),
+    DROP(true),
+    EXAMINE(false),
+    HISTORY(false),
+    QUIT(false);
+
+    private final boolean needsValue;
+
+    CommandType(boolean needsValue) {
+        this.needsValue = needsValue;
+    }
+
+    /**
+     * @return true if the command must be followed by a value, like the direction of "go"
+     */
+    public boolean needsValue() {
+        return needsValue;
+    }
+}
@@ -0,0 +1,138 @@
+package student.adventure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A world held in arrays on the heap, built by World.Builder. Every room keeps its exits as parallel
+ * arrays of lowercased direction names and target room ids.
+ */
+final class HeapWorld extends World {
+    private final String[] roomNames;
+    private final String[] descriptions;
+    private final String[] images;
+    private final List<List<String>> items;
+    private final String videoUrl;
+    private final Map<String, Integer> roomIds;
+    private final String[][] directionKeys;     // lowercased direction names of each room
+    private final int[][] directionTargets;     // room id each direction points to, or NO_ROOM
+    private final List<List<String>> directionNames;
+    private final int startingRoomId;
+    private final int endingRoomId;
+
+    HeapWorld(Builder builder) {
+        int roomCount = builder.roomNames.size();
+        roomNames = builder.roomNames.toArray(new String[roomCount]);
+        descriptions = builder.descriptions.toArray(new String[roomCount]);
+        images = builder.images.toArray(new String[roomCount]);
+        items = new ArrayList<>(builder.items);
+        videoUrl = builder.videoUrl;
+        roomIds = builder.roomIds;
+
+        // direction targets can only be resolved once every room is known
+        directionKeys = new String[roomCount][];
+        directionTargets = new int[roomCount][];
+        directionNames = new ArrayList<>(roomCount);
+        for (int id = 0; id < roomCount; id++) {
+            String[] names = builder.directionNames.get(id);
+            String[] rooms = builder.directionRooms.get(id);
+            String[] keys = new String[names.length];
+            int[] targets = new int[names.length];
+
+            for (int i = 0; i < names.length; i++) {
+                keys[i] = names[i].toLowerCase();
+                targets[i] = getRoomId(rooms[i]);
+                if (targets[i] == NO_ROOM) {
+                    builder.addError("Room " + id + " (" + roomNames[id] + "): direction \"" + names[i]
+                            + "\" points to unknown room \"" + rooms[i] + "\"");
+                }
+            }
+            directionKeys[id] = keys;
+            directionTargets[id] = targets;
+            directionNames.add(Collections.unmodifiableList(Arrays.asList(names)));
+            builder.directionRooms.set(id, null);
+        }
+
+        startingRoomId = getRoomId(builder.startingRoom);
+        endingRoomId = getRoomId(builder.endingRoom);
+        if (startingRoomId == NO_ROOM) {
+            builder.addError("startingRoom \"" + builder.startingRoom + "\" is not a room of the layout");
+        }
+        if (endingRoomId == NO_ROOM) {
+            builder.addError("endingRoom \"" + builder.endingRoom + "\" is not a room of the layout");
+        }
+        if (!builder.errors.isEmpty()) {
+            throw new IllegalArgumentException(LayoutValidator.describe(builder.errors));
+        }
+    }
+
+    @Override
+    public int getRoomCount() {
+        return roomNames.length;
+    }
+
+    @Override
+    public String getVideoUrl() {
+        return videoUrl;
+    }
+
+    @Override
+    public int getStartingRoomId() {
+        return startingRoomId;
+    }
+
+    @Override
+    public int getEndingRoomId() {
+        return endingRoomId;
+    }
+
+    @Override
+    public int getRoomId(String roomName) {
+        Integer id = roomIds.get(roomName);
+        return id == null ? NO_ROOM : id;
+    }
+
+    @Override
+    public String getRoomName(int roomId) {
+        return roomNames[roomId];
+    }
+
+    @Override
+    public String getDescription(int roomId) {
+        return descriptions[roomId];
+    }
+
+    @Override
+    public String getImage(int roomId) {
+        return images[roomId];
+    }
+
+    @Override
+    public List<String> getItems(int roomId) {
+        return items.get(roomId);
+    }
+
+    @Override
+    public List<String> getDirectionNames(int roomId) {
+        return directionNames.get(roomId);
+    }
+
+    @Override
+    public int getDirectionTarget(int roomId, int direction) {
+        return directionTargets[roomId][direction];
+    }
+
+    @Override
+    public int findNextRoomId(int roomId, String direction) {
+        String[] keys = directionKeys[roomId];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(direction)) {
+                return directionTargets[roomId][i];
+            }
+        }
+        return NO_ROOM;
+    }
+}
@@ -0,0 +1,65 @@
+package student.adventure;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * The one ObjectMapper of the process, shared by map loading, the journal, the access log, event
+ * streams and the REST responses.
+ *
+ * A mapper is expensive to make and caches the serializers it builds for every type, so making one per
+ * use throws that work away every time. Once configured here it is never changed, which makes sharing
+ * it between threads safe. Readers and writers for a type are made once and kept, too.
+ */
+public final class Json {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final ClassValue<ObjectReader> readers = new ClassValue<ObjectReader>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return mapper.readerFor(type);
+        }
+    };
+
+    private static final ClassValue<ObjectWriter> writers = new ClassValue<ObjectWriter>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return mapper.writerFor(type);
+        }
+    };
+
+    private Json() {
+    }
+
+    /**
+     * @return the shared mapper; don't change its configuration
+     */
+    public static ObjectMapper mapper() {
+        return mapper;
+    }
+
+    /**
+     * @return the factory of the shared mapper, for streaming reads and writes
+     */
+    public static JsonFactory factory() {
+        return mapper.getFactory();
+    }
+
+    /**
+     * @param type the type to read
+     * @return a reader of the type, made once
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        return readers.get(type);
+    }
+
+    /**
+     * @param type the type to write
+     * @return a writer of the type, made once
+     */
+    public static ObjectWriter writerFor(Class<?> type) {
+        return writers.get(type);
+    }
+}
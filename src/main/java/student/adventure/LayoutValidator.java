@@ -0,0 +1,208 @@
+package student.adventure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Checks that a layout can be played before any game is started with it.
+ *
+ * Besides missing or empty fields, every reference is checked: the starting room, the ending room and
+ * the room of every direction must be rooms of the layout. Room names are put into a hash index once,
+ * so the whole check is linear in the size of the layout. Large layouts are checked in parallel on the
+ * common fork/join pool.
+ *
+ * Every problem is reported, not just the first one, up to MAX_ERRORS.
+ */
+public final class LayoutValidator {
+    /**
+     * The most errors reported for one layout.
+     */
+    public static final int MAX_ERRORS = 1000;
+
+    /**
+     * Layouts with at least this many rooms are checked in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 10_000;
+
+    /**
+     * The most rooms one fork/join task checks without splitting.
+     */
+    private static final int CHUNK_SIZE = 2_048;
+
+    private LayoutValidator() {
+    }
+
+    /**
+     * Check a layout.
+     * @param layout is objects in Json file
+     * @return a description of every problem found, empty if the layout is valid
+     */
+    public static List<String> validate(Layout layout) {
+        List<String> errors = new ArrayList<>();
+        if (isEmpty(layout.getStartingRoom())) {
+            errors.add("startingRoom is missing");
+        }
+        if (isEmpty(layout.getEndingRoom())) {
+            errors.add("endingRoom is missing");
+        }
+
+        Layout.Room[] rooms = layout.getRooms();
+        if (rooms == null) {
+            errors.add("rooms is missing");
+            return errors;
+        }
+        if (rooms.length < 2) {
+            errors.add("A layout needs at least two rooms");
+        }
+
+        Map<String, Integer> roomIds = indexRooms(rooms, errors);
+        checkReference("startingRoom", layout.getStartingRoom(), roomIds, errors);
+        checkReference("endingRoom", layout.getEndingRoom(), roomIds, errors);
+
+        if (rooms.length >= PARALLEL_THRESHOLD) {
+            errors.addAll(ForkJoinPool.commonPool().invoke(new RoomCheck(rooms, roomIds, 0, rooms.length)));
+        } else {
+            errors.addAll(checkRooms(rooms, roomIds, 0, rooms.length));
+        }
+
+        if (errors.size() > MAX_ERRORS) {
+            int more = errors.size() - MAX_ERRORS;
+            errors = new ArrayList<>(errors.subList(0, MAX_ERRORS));
+            errors.add("... and " + more + " more errors");
+        }
+        return errors;
+    }
+
+    /**
+     * Turn a list of errors into an exception message, naming the first few errors.
+     * @param errors the errors found in a layout
+     * @return the message
+     */
+    public static String describe(List<String> errors) {
+        int shown = Math.min(errors.size(), 10);
+        String message = "Layout is not valid: " + String.join("; ", errors.subList(0, shown));
+        return shown < errors.size() ? message + " (" + errors.size() + " errors)" : message;
+    }
+
+    /**
+     * Build the name index. Only the first room with a name gets into the index; later ones are errors.
+     */
+    private static Map<String, Integer> indexRooms(Layout.Room[] rooms, List<String> errors) {
+        Map<String, Integer> roomIds = new HashMap<>(rooms.length * 2);
+        for (int id = 0; id < rooms.length; id++) {
+            if (rooms[id] == null || isEmpty(rooms[id].getName())) {
+                continue; // reported by checkRooms
+            }
+            Integer first = roomIds.putIfAbsent(rooms[id].getName(), id);
+            if (first != null) {
+                errors.add(roomLabel(rooms, id) + " has the same name as room " + first);
+            }
+        }
+        return roomIds;
+    }
+
+    private static void checkReference(String field, String roomName, Map<String, Integer> roomIds,
+                                       List<String> errors) {
+        if (!isEmpty(roomName) && !roomIds.containsKey(roomName)) {
+            errors.add(field + " \"" + roomName + "\" is not a room of the layout");
+        }
+    }
+
+    /**
+     * Check rooms[from, to) against the name index.
+     */
+    private static List<String> checkRooms(Layout.Room[] rooms, Map<String, Integer> roomIds, int from, int to) {
+        List<String> errors = new ArrayList<>();
+        Set<String> directionKeys = new HashSet<>();
+
+        for (int id = from; id < to; id++) {
+            Layout.Room room = rooms[id];
+            if (room == null) {
+                errors.add("Room " + id + " is null");
+                continue;
+            }
+            if (isEmpty(room.getName())) {
+                errors.add(roomLabel(rooms, id) + " has no name");
+            }
+            if (isEmpty(room.getDescription())) {
+                errors.add(roomLabel(rooms, id) + " has no description");
+            }
+            Layout.Room.Direction[] directions = room.getDirections();
+            if (directions == null || directions.length == 0) {
+                errors.add(roomLabel(rooms, id) + " has no directions");
+                continue;
+            }
+
+            directionKeys.clear();
+            for (int i = 0; i < directions.length; i++) {
+                Layout.Room.Direction direction = directions[i];
+                if (direction == null || isEmpty(direction.getDirectionName())) {
+                    errors.add(roomLabel(rooms, id) + ": direction " + i + " has no name");
+                } else if (!directionKeys.add(direction.getDirectionName().toLowerCase())) {
+                    errors.add(roomLabel(rooms, id) + ": direction \"" + direction.getDirectionName()
+                            + "\" appears more than once");
+                }
+
+                if (direction == null || isEmpty(direction.getRoom())) {
+                    errors.add(roomLabel(rooms, id) + ": direction " + i + " has no room");
+                } else if (!roomIds.containsKey(direction.getRoom())) {
+                    errors.add(roomLabel(rooms, id) + ": direction \"" + direction.getDirectionName()
+                            + "\" points to unknown room \"" + direction.getRoom() + "\"");
+                }
+            }
+        }
+        return errors;
+    }
+
+    private static String roomLabel(Layout.Room[] rooms, int id) {
+        String name = rooms[id] == null ? null : rooms[id].getName();
+        return isEmpty(name) ? "Room " + id : "Room " + id + " (" + name + ")";
+    }
+
+    private static boolean isEmpty(String text) {
+        return text == null || text.isEmpty();
+    }
+
+    /**
+     * Checks a range of rooms, splitting it in halves until it is small enough. Errors come back in
+     * room order.
+     */
+    private static final class RoomCheck extends RecursiveTask<List<String>> {
+        private final Layout.Room[] rooms;
+        private final Map<String, Integer> roomIds;
+        private final int from;
+        private final int to;
+
+        RoomCheck(Layout.Room[] rooms, Map<String, Integer> roomIds, int from, int to) {
+            this.rooms = rooms;
+            this.roomIds = roomIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<String> compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return checkRooms(rooms, roomIds, from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+            RoomCheck left = new RoomCheck(rooms, roomIds, from, middle);
+            RoomCheck right = new RoomCheck(rooms, roomIds, middle, to);
+            left.fork();
+            List<String> rightErrors = right.compute();
+            List<String> errors = left.join();
+            if (errors.isEmpty()) {
+                return rightErrors;
+            }
+            errors.addAll(rightErrors);
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package student.adventure;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Receives progress reports while a world is being loaded.
+ *
+ * Loading happens in phases: "parse" reads the map file, "link" resolves every direction to a room id.
+ * Reports come from the loading thread.
+ */
+public interface LoadProgress {
+    /**
+     * A progress listener that ignores every report.
+     */
+    LoadProgress NONE = new LoadProgress() {
+    };
+
+    /**
+     * Called every so often while a phase is running.
+     * @param phase the name of the phase
+     * @param rooms the number of rooms handled so far
+     */
+    default void roomsLoaded(String phase, long rooms) {
+    }
+
+    /**
+     * Called once when a phase is done.
+     * @param phase the name of the phase
+     * @param rooms the number of rooms handled
+     * @param nanos how long the phase took
+     */
+    default void phaseFinished(String phase, long rooms, long nanos) {
+    }
+
+    /**
+     * A progress listener that logs every report at INFO level.
+     * @param logger the logger to write to
+     * @return the listener
+     */
+    static LoadProgress log(Logger logger) {
+        return new LoadProgress() {
+            @Override
+            public void roomsLoaded(String phase, long rooms) {
+                logger.info(phase + ": " + rooms + " rooms");
+            }
+
+            @Override
+            public void phaseFinished(String phase, long rooms, long nanos) {
+                logger.info(phase + " done: " + rooms + " rooms in " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+            }
+        };
+    }
+}
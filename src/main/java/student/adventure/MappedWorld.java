@@ -0,0 +1,236 @@
+package student.adventure;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static student.adventure.WorldCompiler.EDGE_INTS;
+import static student.adventure.WorldCompiler.HEADER_INTS;
+import static student.adventure.WorldCompiler.ROOM_INTS;
+
+/**
+ * A world read straight from a file written by WorldCompiler, which is memory-mapped read-only.
+ *
+ * Opening the file only reads its header, so startup does not depend on the size of the map, and every
+ * process that opens the same file shares one copy of it in the OS page cache. Rooms, directions and
+ * the name index are read in place; strings are decoded when they are asked for.
+ *
+ * All reads use absolute positions, so one world can be used by any number of threads.
+ */
+final class MappedWorld extends World {
+    private final ByteBuffer buffer;
+    private final int roomCount;
+    private final int startingRoomId;
+    private final int endingRoomId;
+    private final String videoUrl;
+    private final int indexSize;
+    private final int roomsPos;
+    private final int edgesPos;
+    private final int itemsPos;
+    private final int indexPos;
+    private final int stringOffsetsPos;
+    private final int stringDataPos;
+
+    private MappedWorld(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_INTS * 4 || buffer.getInt(0) != WorldCompiler.MAGIC) {
+            throw new IOException("Not a compiled world file");
+        }
+        if (buffer.getInt(4) != WorldCompiler.VERSION) {
+            throw new IOException("Unsupported world file version " + buffer.getInt(4));
+        }
+
+        roomCount = buffer.getInt(8);
+        int edgeCount = buffer.getInt(12);
+        int itemCount = buffer.getInt(16);
+        int stringCount = buffer.getInt(20);
+        startingRoomId = buffer.getInt(24);
+        endingRoomId = buffer.getInt(28);
+        int videoUrlId = buffer.getInt(32);
+        indexSize = buffer.getInt(36);
+
+        roomsPos = HEADER_INTS * 4;
+        edgesPos = roomsPos + roomCount * ROOM_INTS * 4;
+        itemsPos = edgesPos + edgeCount * EDGE_INTS * 4;
+        indexPos = itemsPos + itemCount * 4;
+        stringOffsetsPos = indexPos + indexSize * 4;
+        stringDataPos = stringOffsetsPos + (stringCount + 1) * 4;
+        if (stringDataPos > buffer.capacity()
+                || stringDataPos + (long) buffer.getInt(stringDataPos - 4) > buffer.capacity()) {
+            throw new IOException("World file is truncated");
+        }
+
+        videoUrl = string(videoUrlId);
+    }
+
+    /**
+     * Map a compiled world file.
+     * @param file a file written by WorldCompiler
+     * @return the world in the file
+     * @throws IOException if the file can't be read or is not a compiled world of a supported version
+     */
+    static World open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new MappedWorld(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Check whether a file starts like a compiled world file.
+     * @param file any file
+     * @return true if the file starts with WorldCompiler.MAGIC
+     */
+    static boolean isCompiled(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until the first four bytes are in
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == WorldCompiler.MAGIC;
+        }
+    }
+
+    @Override
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    @Override
+    public String getVideoUrl() {
+        return videoUrl;
+    }
+
+    @Override
+    public int getStartingRoomId() {
+        return startingRoomId;
+    }
+
+    @Override
+    public int getEndingRoomId() {
+        return endingRoomId;
+    }
+
+    @Override
+    public int getRoomId(String roomName) {
+        if (roomName == null) {
+            return NO_ROOM;
+        }
+        for (int slot = WorldCompiler.slot(roomName, indexSize); ; slot = (slot + 1) & (indexSize - 1)) {
+            int id = buffer.getInt(indexPos + slot * 4);
+            if (id == NO_ROOM || stringEquals(roomInt(id, 0), roomName)) {
+                return id;
+            }
+        }
+    }
+
+    @Override
+    public String getRoomName(int roomId) {
+        return string(roomInt(roomId, 0));
+    }
+
+    @Override
+    public String getDescription(int roomId) {
+        return string(roomInt(roomId, 1));
+    }
+
+    @Override
+    public String getImage(int roomId) {
+        return string(roomInt(roomId, 2));
+    }
+
+    @Override
+    public List<String> getItems(int roomId) {
+        int first = roomInt(roomId, 5);
+        int count = roomInt(roomId, 6);
+        List<String> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(string(buffer.getInt(itemsPos + (first + i) * 4)));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    @Override
+    public List<String> getDirectionNames(int roomId) {
+        int first = roomInt(roomId, 3);
+        int count = roomInt(roomId, 4);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(string(edgeInt(first + i, 0)));
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    @Override
+    public int getDirectionTarget(int roomId, int direction) {
+        return edgeInt(roomInt(roomId, 3) + direction, 2);
+    }
+
+    @Override
+    public int findNextRoomId(int roomId, String direction) {
+        int first = roomInt(roomId, 3);
+        int count = roomInt(roomId, 4);
+        for (int i = 0; i < count; i++) {
+            if (stringEquals(edgeInt(first + i, 1), direction)) {
+                return edgeInt(first + i, 2);
+            }
+        }
+        return NO_ROOM;
+    }
+
+    private int roomInt(int roomId, int field) {
+        if (roomId < 0 || roomId >= roomCount) {
+            throw new IndexOutOfBoundsException("No room " + roomId);
+        }
+        return buffer.getInt(roomsPos + (roomId * ROOM_INTS + field) * 4);
+    }
+
+    private int edgeInt(int edge, int field) {
+        return buffer.getInt(edgesPos + (edge * EDGE_INTS + field) * 4);
+    }
+
+    private String string(int id) {
+        if (id < 0) {
+            return null;
+        }
+        int start = buffer.getInt(stringOffsetsPos + id * 4);
+        int end = buffer.getInt(stringOffsetsPos + id * 4 + 4);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringDataPos + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare a stored string with a string without decoding the stored one, as long as the other
+     * string is plain ASCII, which room names and direction keys almost always are.
+     */
+    private boolean stringEquals(int id, String value) {
+        if (id < 0) {
+            return false;
+        }
+        int start = stringDataPos + buffer.getInt(stringOffsetsPos + id * 4);
+        int length = stringDataPos + buffer.getInt(stringOffsetsPos + id * 4 + 4) - start;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return value.equals(string(id));
+            }
+        }
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package student.adventure;
+
+/**
+ * The rooms a player has visited, as room ids in a fixed-size ring buffer.
+ *
+ * Every visit is counted, but only the most recent `capacity` visits are kept, so a session that runs
+ * for days uses the same memory as one that just started. Visits are numbered from 0 in the order they
+ * happened; the oldest kept visit is getFirstVisit().
+ */
+public class RoomHistory {
+    /**
+     * The number of visits kept when no capacity is given.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int[] rooms;
+    private long visits;
+
+    public RoomHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of most recent visits to keep
+     */
+    public RoomHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be positive");
+        }
+        rooms = new int[capacity];
+    }
+
+    public void add(int roomId) {
+        rooms[(int) (visits % rooms.length)] = roomId;
+        visits++;
+    }
+
+    public void clear() {
+        visits = 0;
+    }
+
+    /**
+     * Replace the history with visits that were saved earlier, e.g. with tail().
+     * @param visitCount the number of visits, including ones no longer kept
+     * @param kept the most recent visits, oldest first; at most the capacity of this history
+     */
+    public void restore(long visitCount, int[] kept) {
+        if (kept.length > rooms.length || kept.length > visitCount) {
+            throw new IllegalArgumentException("History does not fit");
+        }
+        visits = visitCount - kept.length;
+        for (int roomId : kept) {
+            add(roomId);
+        }
+    }
+
+    public int getCapacity() {
+        return rooms.length;
+    }
+
+    /**
+     * @return the number of visits since the history was cleared, including ones no longer kept
+     */
+    public long getVisitCount() {
+        return visits;
+    }
+
+    /**
+     * @return the number of the oldest visit that is still kept
+     */
+    public long getFirstVisit() {
+        return Math.max(0, visits - rooms.length);
+    }
+
+    /**
+     * @return the number of visits that are kept
+     */
+    public int size() {
+        return (int) (visits - getFirstVisit());
+    }
+
+    /**
+     * Get the room of a visit that is still kept.
+     * @param visit the number of the visit
+     * @return the id of the room visited
+     */
+    public int get(long visit) {
+        if (visit < getFirstVisit() || visit >= visits) {
+            throw new IndexOutOfBoundsException("Visit " + visit + " is not kept");
+        }
+        return rooms[(int) (visit % rooms.length)];
+    }
+
+    /**
+     * Get up to `limit` rooms starting at a visit. Visits that are no longer kept are skipped.
+     * @param fromVisit the number of the first visit wanted
+     * @param limit the most rooms to return
+     * @return the room ids, oldest first
+     */
+    public int[] page(long fromVisit, int limit) {
+        long from = Math.max(fromVisit, getFirstVisit());
+        int count = (int) Math.max(0, Math.min(limit, visits - from));
+        int[] page = new int[count];
+        for (int i = 0; i < count; i++) {
+            page[i] = rooms[(int) ((from + i) % rooms.length)];
+        }
+        return page;
+    }
+
+    /**
+     * Get the most recent rooms.
+     * @param limit the most rooms to return
+     * @return the room ids, oldest first
+     */
+    public int[] tail(int limit) {
+        return page(visits - Math.min(limit, size()), limit);
+    }
+}
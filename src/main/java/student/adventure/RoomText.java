@@ -0,0 +1,130 @@
+package student.adventure;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Renders what a player is shown in a room: its description, "From here you can go: East, West or South"
+ * and "Items visible: ...".
+ *
+ * The directions of a room and the items it starts with are the same in every game, so their lines are
+ * rendered once per room of a world and shared; a game only renders an items line again for a room whose
+ * items it changed. Rooms are rendered the first time a game shows them.
+ */
+public final class RoomText {
+    public static final String DIRECTIONS = "From here you can go: ";
+    public static final String ITEMS = "Items visible: ";
+
+    /**
+     * Worlds with up to this many rooms keep their lines in arrays; larger ones in maps.
+     */
+    private static final int ARRAY_ROOMS = 1 << 16;
+
+    private final World world;
+    private final AtomicReferenceArray<String> directions;  // null for a large world
+    private final AtomicReferenceArray<String> items;
+    private final ConcurrentMap<Integer, String> largeDirections;  // null for a small world
+    private final ConcurrentMap<Integer, String> largeItems;
+
+    private RoomText(World world) {
+        this.world = world;
+        int rooms = world.getRoomCount();
+        boolean small = rooms <= ARRAY_ROOMS;
+        directions = small ? new AtomicReferenceArray<>(rooms) : null;
+        items = small ? new AtomicReferenceArray<>(rooms) : null;
+        largeDirections = small ? null : new ConcurrentHashMap<>();
+        largeItems = small ? null : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param world a world
+     * @return the rendered rooms of the world, the same for every game in it
+     */
+    public static RoomText of(World world) {
+        return world.attachment(RoomText.class, RoomText::new);
+    }
+
+    /**
+     * @param roomId a room of the world
+     * @return the directions line of the room, without a line separator
+     */
+    public String directions(int roomId) {
+        String line = directions != null ? directions.get(roomId) : largeDirections.get(roomId);
+        if (line == null) {
+            // two threads may both render a room; they make equal lines and either one is kept
+            line = DIRECTIONS + list(world.getDirectionNames(roomId));
+            if (directions != null) {
+                directions.lazySet(roomId, line);
+            } else {
+                largeDirections.putIfAbsent(roomId, line);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * @param roomId a room of the world
+     * @return the items line of the room with the items it starts with, without a line separator, or ""
+     *         if it starts with none
+     */
+    public String items(int roomId) {
+        String line = items != null ? items.get(roomId) : largeItems.get(roomId);
+        if (line == null) {
+            line = items(world.getItems(roomId));
+            if (items != null) {
+                items.lazySet(roomId, line);
+            } else {
+                largeItems.putIfAbsent(roomId, line);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * @param items the items of a room
+     * @return the items line, without a line separator, or "" if there are no items
+     */
+    public static String items(List<String> items) {
+        return items.isEmpty() ? "" : ITEMS + list(items);
+    }
+
+    /**
+     * Puts a room's lines together as the console shows them, each ending with the line separator. A room
+     * without items has no items line.
+     * @param description the description of the room
+     * @param directions the directions line of the room
+     * @param items the items line of the room, or ""
+     * @return the text of the room
+     */
+    public static String render(String description, String directions, String items) {
+        String separator = System.lineSeparator();
+        StringBuilder text = new StringBuilder(description.length() + directions.length() + items.length()
+                + 3 * separator.length());
+        text.append(description).append(separator).append(directions).append(separator);
+        if (!items.isEmpty()) {
+            text.append(items).append(separator);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Lists names the way the console does, e.g. "East", "East or West" and "East, West or South".
+     * @param names the names to list
+     * @return the names in one string, or "" if there are none
+     */
+    public static String list(List<String> names) {
+        int count = names.size();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(names.get(i));
+            if (i < count - 2) {
+                text.append(", ");
+            } else if (i == count - 2) {
+                text.append(" or ");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,224 @@
+package student.adventure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A compiled, index-based view of a Layout. It is built once per layout so that a game never has to
+ * scan the room list while it is being played.
+ *
+ * Rooms are numbered 0..n-1 in the order they appear in the layout. Room names are resolved through a
+ * hash index, and every room keeps its exits as lowercased direction names and target room ids, so a
+ * move only looks at the exits of the current room.
+ *
+ * A world never changes once it is built, so one world is shared by every game created from the same
+ * map. Games keep their own changes to room items. Worlds built from a Layout or a World.Builder live
+ * on the heap; worlds opened with MappedWorld.open are read straight from a precompiled file.
+ */
+public abstract class World {
+    /**
+     * Id returned when a room name or a direction can't be resolved.
+     */
+    public static final int NO_ROOM = -1;
+
+    // objects derived from this world, e.g. its rendered rooms, by type; see attachment()
+    private final ConcurrentMap<Class<?>, Object> attachments = new ConcurrentHashMap<>();
+
+    /**
+     * Compile a layout into a world. The layout is expected to have passed schema validation.
+     * @param layout a valid layout
+     * @return the compiled world
+     * @throws IllegalArgumentException if a room name or a reference to a room is not valid
+     */
+    public static World compile(Layout layout) {
+        Builder builder = new Builder()
+                .setStartingRoom(layout.getStartingRoom())
+                .setEndingRoom(layout.getEndingRoom())
+                .setVideoUrl(layout.getVideoUrl());
+
+        for (Layout.Room room : layout.getRooms()) {
+            Layout.Room.Direction[] directions = room.getDirections();
+            String[] directionNames = new String[directions.length];
+            String[] directionRooms = new String[directions.length];
+            for (int i = 0; i < directions.length; i++) {
+                directionNames[i] = directions[i].getDirectionName();
+                directionRooms[i] = directions[i].getRoom();
+            }
+            builder.addRoom(room.getName(), room.getDescription(), room.getImage(),
+                    directionNames, directionRooms, room.getItems());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get an object derived from this world, such as a cache of its rooms, making it the first time it is
+     * asked for. It is kept for as long as the world, and looking it up takes no lock.
+     * @param type the type of the object; one object is kept per type
+     * @param make makes the object from this world
+     * @return the object of the type
+     */
+    public <T> T attachment(Class<T> type, Function<World, T> make) {
+        Object attached = attachments.get(type);
+        if (attached == null) {
+            attached = attachments.computeIfAbsent(type, key -> make.apply(this));
+        }
+        return type.cast(attached);
+    }
+
+    public abstract int getRoomCount();
+
+    public abstract String getVideoUrl();
+
+    public abstract int getStartingRoomId();
+
+    public abstract int getEndingRoomId();
+
+    /**
+     * Find the id of a room by its name.
+     * @param roomName the exact name of a room
+     * @return the id of the room, or NO_ROOM if there is no such room
+     */
+    public abstract int getRoomId(String roomName);
+
+    public abstract String getRoomName(int roomId);
+
+    public abstract String getDescription(int roomId);
+
+    public abstract String getImage(int roomId);
+
+    /**
+     * Get the items a room starts with. Games that take or drop items keep their own copy.
+     * @param roomId the id of a room
+     * @return an unmodifiable list of item names
+     */
+    public abstract List<String> getItems(int roomId);
+
+    /**
+     * Get the direction names of a room as written in the layout.
+     * @param roomId the id of a room
+     * @return an unmodifiable list of direction names
+     */
+    public abstract List<String> getDirectionNames(int roomId);
+
+    /**
+     * Get the room a direction of a room points to.
+     * @param roomId the id of a room
+     * @param direction the index of the direction in getDirectionNames(roomId)
+     * @return the id of the room the direction points to, or NO_ROOM if it points to no room
+     */
+    public abstract int getDirectionTarget(int roomId, int direction);
+
+    /**
+     * Find the room a direction leads to. Only the exits of the given room are looked at,
+     * so the cost does not depend on the number of rooms.
+     * @param roomId the id of the room the player is in
+     * @param direction a lowercased direction name
+     * @return the id of the next room, or NO_ROOM if the direction is not an exit of the room
+     */
+    public abstract int findNextRoomId(int roomId, String direction);
+
+    /**
+     * Collects rooms one at a time, e.g. while a map file is being read, and compiles them into a world.
+     * Directions may point to rooms that are added later; they are resolved by build().
+     */
+    public static class Builder {
+        final List<String> roomNames = new ArrayList<>();
+        final List<String> descriptions = new ArrayList<>();
+        final List<String> images = new ArrayList<>();
+        final List<List<String>> items = new ArrayList<>();
+        final List<String[]> directionNames = new ArrayList<>();
+        final List<String[]> directionRooms = new ArrayList<>();
+        final Map<String, Integer> roomIds = new HashMap<>();
+        final List<String> errors = new ArrayList<>();
+        private final Set<String> directionKeys = new HashSet<>(); // of the room being added
+        String startingRoom;
+        String endingRoom;
+        String videoUrl;
+
+        public Builder setStartingRoom(String startingRoom) {
+            this.startingRoom = startingRoom;
+            return this;
+        }
+
+        public Builder setEndingRoom(String endingRoom) {
+            this.endingRoom = endingRoom;
+            return this;
+        }
+
+        public Builder setVideoUrl(String videoUrl) {
+            this.videoUrl = videoUrl;
+            return this;
+        }
+
+        /**
+         * Add the next room. Rooms get ids in the order they are added.
+         * @param name the name of the room
+         * @param description the description of the room
+         * @param image a URL of an image of the room, may be null
+         * @param directionNames the names of the room's directions
+         * @param directionRooms the name of the room each direction points to
+         * @param roomItems the items in the room, may be null
+         * @return the id of the room
+         */
+        public int addRoom(String name, String description, String image,
+                           String[] directionNames, String[] directionRooms, String[] roomItems) {
+            if (directionNames.length != directionRooms.length) {
+                throw new IllegalArgumentException("Every direction of room " + name + " needs a room");
+            }
+
+            int id = roomNames.size();
+            roomNames.add(name);
+            descriptions.add(description);
+            images.add(image);
+            String[] itemCopy = roomItems == null ? new String[0] : roomItems.clone();
+            items.add(Collections.unmodifiableList(Arrays.asList(itemCopy)));
+            this.directionNames.add(directionNames.clone());
+            this.directionRooms.add(directionRooms.clone());
+            Integer first = roomIds.putIfAbsent(name, id);
+            if (first != null) {
+                addError("Room " + id + " (" + name + ") has the same name as room " + first);
+            }
+            // as in LayoutValidator; a move would only ever take the first of the directions
+            directionKeys.clear();
+            for (String direction : directionNames) {
+                if (!directionKeys.add(direction.toLowerCase())) {
+                    addError("Room " + id + " (" + name + "): direction \"" + direction
+                            + "\" appears more than once");
+                }
+            }
+            return id;
+        }
+
+        public int getRoomCount() {
+            return roomNames.size();
+        }
+
+        /**
+         * Record a problem with the rooms added so far. Only the first LayoutValidator.MAX_ERRORS are kept.
+         */
+        void addError(String error) {
+            if (errors.size() < LayoutValidator.MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        /**
+         * Resolve every direction and compile the world. The builder should not be used afterwards.
+         * @return the compiled world
+         * @throws IllegalArgumentException if two rooms have the same name, or the starting room, the ending
+         *                                  room or the room of a direction does not exist
+         */
+        public World build() {
+            return new HeapWorld(this);
+        }
+    }
+}
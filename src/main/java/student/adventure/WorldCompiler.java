@@ -0,0 +1,208 @@
+package student.adventure;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a map file into the binary world format that MappedWorld reads.
+ *
+ * Usage: WorldCompiler [map.json] [out.world]
+ *
+ * The file is a header followed by fixed-size sections, all made of big-endian ints except the last:
+ *
+ * header:  MAGIC, VERSION, room count, direction count, item count, string count, starting room id,
+ *          ending room id, video URL string, name index size
+ * rooms:   per room: name, description, image, first direction, direction count, first item, item count
+ * edges:   per direction: name, lowercased name, target room id (or NO_ROOM)
+ * items:   one string per item
+ * index:   open-addressing table of room ids by room name hash, NO_ROOM for empty slots
+ * strings: string count + 1 offsets into the string data, then the UTF-8 string data
+ *
+ * Strings are stored once and referred to by number; -1 stands for a missing string. Since every
+ * section has a fixed size, a reader finds any room with a little arithmetic and no parsing.
+ */
+public final class WorldCompiler {
+    static final int MAGIC = 0x41445657; // "ADVW"
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 10;
+    static final int ROOM_INTS = 7;
+    static final int EDGE_INTS = 3;
+
+    private WorldCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: WorldCompiler <map.json> <out.world>");
+            return;
+        }
+
+        long start = System.nanoTime();
+        World world = WorldLoader.load(new File(args[0]), WorldLoader.Mode.AUTO, LoadProgress.NONE);
+        write(world, new File(args[1]));
+        System.out.println("Compiled " + world.getRoomCount() + " rooms in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Write a world in the binary world format.
+     * @param world the world to write
+     * @param file the file to write to
+     * @throws IOException if the file can't be written or the world is too big for the format
+     */
+    public static void write(World world, File file) throws IOException {
+        Strings strings = new Strings();
+        int videoUrlId = strings.id(world.getVideoUrl());
+        int roomCount = world.getRoomCount();
+        int[] rooms = new int[roomCount * ROOM_INTS];
+        IntList edges = new IntList();
+        IntList items = new IntList();
+
+        for (int id = 0; id < roomCount; id++) {
+            List<String> directionNames = world.getDirectionNames(id);
+            List<String> roomItems = world.getItems(id);
+            int room = id * ROOM_INTS;
+            rooms[room] = strings.id(world.getRoomName(id));
+            rooms[room + 1] = strings.id(world.getDescription(id));
+            rooms[room + 2] = strings.id(world.getImage(id));
+            rooms[room + 3] = edges.size() / EDGE_INTS;
+            rooms[room + 4] = directionNames.size();
+            rooms[room + 5] = items.size();
+            rooms[room + 6] = roomItems.size();
+
+            for (int i = 0; i < directionNames.size(); i++) {
+                edges.add(strings.id(directionNames.get(i)));
+                edges.add(strings.id(directionNames.get(i).toLowerCase()));
+                edges.add(world.getDirectionTarget(id, i));
+            }
+            for (String item : roomItems) {
+                items.add(strings.id(item));
+            }
+        }
+
+        int[] index = buildIndex(world);
+        byte[][] data = strings.encode();
+        long size = 4L * (HEADER_INTS + rooms.length + edges.size() + items.size() + index.length + data.length + 1);
+        for (byte[] bytes : data) {
+            size += bytes.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("World is too big for the binary format: " + size + " bytes");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(roomCount);
+            out.writeInt(edges.size() / EDGE_INTS);
+            out.writeInt(items.size());
+            out.writeInt(data.length);
+            out.writeInt(world.getStartingRoomId());
+            out.writeInt(world.getEndingRoomId());
+            out.writeInt(videoUrlId);
+            out.writeInt(index.length);
+
+            writeInts(out, rooms, rooms.length);
+            writeInts(out, edges.values, edges.size());
+            writeInts(out, items.values, items.size());
+            writeInts(out, index, index.length);
+
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] bytes : data) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : data) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Hash a room name to its first slot in the name index.
+     */
+    static int slot(String roomName, int indexSize) {
+        int h = roomName.hashCode();
+        return (h ^ (h >>> 16)) & (indexSize - 1);
+    }
+
+    private static int[] buildIndex(World world) {
+        int size = Integer.highestOneBit(Math.max(2, world.getRoomCount()) * 2 - 1) << 1;
+        int[] index = new int[size];
+        Arrays.fill(index, World.NO_ROOM);
+
+        for (int id = 0; id < world.getRoomCount(); id++) {
+            String name = world.getRoomName(id);
+            if (world.getRoomId(name) != id) {
+                continue; // a room with the same name came first and wins, as in every other world
+            }
+            int slot = slot(name, size);
+            while (index[slot] != World.NO_ROOM) {
+                slot = (slot + 1) & (size - 1);
+            }
+            index[slot] = id;
+        }
+        return index;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * The string table: every distinct string gets the next number.
+     */
+    private static final class Strings {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        byte[][] encode() {
+            byte[][] data = new byte[values.size()][];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+            }
+            return data;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package student.adventure;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads map files into worlds.
+ *
+ * Files compiled by WorldCompiler are memory-mapped as they are, whatever the mode. For json maps, small
+ * maps are read into a whole Layout first, as they always have been. Large maps are read with
+ * Jackson's streaming parser instead: each room goes straight into a World.Builder as soon as it has
+ * been read, so the only extra memory is the room being read, not a tree of every room and direction.
+ * Either way, a map whose rooms or directions point to missing rooms is rejected when it is loaded.
+ */
+public final class WorldLoader {
+    /**
+     * How a map file is read.
+     */
+    public enum Mode {
+        /** Read the whole file into a Layout, then compile it. */
+        TREE,
+        /** Stream rooms from the file straight into a World.Builder. */
+        STREAMING,
+        /** STREAMING for files of at least STREAMING_THRESHOLD bytes, TREE for smaller ones. */
+        AUTO
+    }
+
+    /**
+     * Files at least this big are streamed in AUTO mode.
+     */
+    public static final long STREAMING_THRESHOLD = 8L * 1024 * 1024;
+
+    /**
+     * How many rooms are read between two progress reports.
+     */
+    private static final int PROGRESS_INTERVAL = 100_000;
+
+    private static final JsonFactory jsonFactory = Json.factory();
+
+    private WorldLoader() {
+    }
+
+    /**
+     * Read a map file into a world.
+     * @param file the map file
+     * @param mode how to read the file
+     * @param progress where to report progress and the time of each phase
+     * @return the world described by the file
+     * @throws IOException if the file can't be read or is not valid JSON
+     * @throws IllegalArgumentException if the layout in the file is not valid
+     */
+    public static World load(File file, Mode mode, LoadProgress progress) throws IOException {
+        if (MappedWorld.isCompiled(file)) {
+            long start = System.nanoTime();
+            World world = MappedWorld.open(file);
+            progress.phaseFinished("map", world.getRoomCount(), System.nanoTime() - start);
+            return world;
+        }
+        if (mode == Mode.AUTO) {
+            mode = file.length() >= STREAMING_THRESHOLD ? Mode.STREAMING : Mode.TREE;
+        }
+        return mode == Mode.STREAMING ? loadStreaming(file, progress) : loadTree(file, progress);
+    }
+
+    private static World loadTree(File file, LoadProgress progress) throws IOException {
+        long start = System.nanoTime();
+        Layout layout = Json.readerFor(Layout.class).readValue(file);
+        List<String> errors = LayoutValidator.validate(layout);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(LayoutValidator.describe(errors));
+        }
+        int rooms = layout.getRooms().length;
+        progress.phaseFinished("parse", rooms, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        World world = World.compile(layout);
+        progress.phaseFinished("link", rooms, System.nanoTime() - start);
+        return world;
+    }
+
+    private static World loadStreaming(File file, LoadProgress progress) throws IOException {
+        long start = System.nanoTime();
+        World.Builder builder = new World.Builder();
+        boolean hasStartingRoom = false;
+        boolean hasEndingRoom = false;
+
+        try (JsonParser parser = jsonFactory.createParser(file)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "startingRoom":
+                        builder.setStartingRoom(parser.getValueAsString());
+                        hasStartingRoom = parser.getValueAsString() != null;
+                        break;
+                    case "endingRoom":
+                        builder.setEndingRoom(parser.getValueAsString());
+                        hasEndingRoom = parser.getValueAsString() != null;
+                        break;
+                    case "videoUrl":
+                        builder.setVideoUrl(parser.getValueAsString());
+                        break;
+                    case "rooms":
+                        readRooms(parser, builder, progress);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        if (!hasStartingRoom || !hasEndingRoom || builder.getRoomCount() < 2) {
+            throw new IllegalArgumentException("Layout needs a starting room, an ending room and two rooms");
+        }
+        progress.phaseFinished("parse", builder.getRoomCount(), System.nanoTime() - start);
+
+        start = System.nanoTime();
+        int rooms = builder.getRoomCount();
+        World world = builder.build();
+        progress.phaseFinished("link", rooms, System.nanoTime() - start);
+        return world;
+    }
+
+    private static void readRooms(JsonParser parser, World.Builder builder, LoadProgress progress)
+            throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+
+        // reused for every room, so reading a room only allocates what the world keeps
+        List<String> directionNames = new ArrayList<>();
+        List<String> directionRooms = new ArrayList<>();
+        List<String> items = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String name = null;
+            String description = null;
+            String image = null;
+            boolean hasDirections = false;
+            directionNames.clear();
+            directionRooms.clear();
+            items.clear();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name":
+                        name = parser.getValueAsString();
+                        break;
+                    case "description":
+                        description = parser.getValueAsString();
+                        break;
+                    case "image":
+                        image = parser.getValueAsString();
+                        break;
+                    case "directions":
+                        hasDirections = parser.currentToken() == JsonToken.START_ARRAY;
+                        readDirections(parser, directionNames, directionRooms);
+                        break;
+                    case "items":
+                        readItems(parser, items);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            if (isEmpty(name) || isEmpty(description) || !hasDirections || directionNames.isEmpty()) {
+                throw new IllegalArgumentException("Room " + builder.getRoomCount()
+                        + " needs a name, a description and directions");
+            }
+            builder.addRoom(name, description, image,
+                    directionNames.toArray(new String[0]), directionRooms.toArray(new String[0]),
+                    items.toArray(new String[0]));
+
+            if (builder.getRoomCount() % PROGRESS_INTERVAL == 0) {
+                progress.roomsLoaded("parse", builder.getRoomCount());
+            }
+        }
+        expect(parser, parser.currentToken(), JsonToken.END_ARRAY);
+    }
+
+    private static void readDirections(JsonParser parser, List<String> names, List<String> rooms)
+            throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String directionName = null;
+            String room = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (field.equals("directionName")) {
+                    directionName = parser.getValueAsString();
+                } else if (field.equals("room")) {
+                    room = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (isEmpty(directionName) || isEmpty(room)) {
+                throw new IllegalArgumentException("Every direction needs a name and a room");
+            }
+            names.add(directionName);
+            rooms.add(room);
+        }
+    }
+
+    private static void readItems(JsonParser parser, List<String> items) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            items.add(parser.getValueAsString());
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws JsonParseException {
+        if (token != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but found " + token);
+        }
+    }
+
+    private static boolean isEmpty(String text) {
+        return text == null || text.isEmpty();
+    }
+}
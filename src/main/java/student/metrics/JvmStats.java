@@ -0,0 +1,89 @@
+package student.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Heap, garbage collection and thread figures of this JVM at one moment, as reported by the metrics
+ * endpoint.
+ */
+public class JvmStats {
+    private final long uptimeSeconds;
+    private final long heapUsedBytes;
+    private final long heapCommittedBytes;
+    private final long heapMaxBytes;      // -1 if there is no limit
+    private final long nonHeapUsedBytes;
+    private final int threads;
+    /**
+     * Collections and milliseconds spent collecting so far, by collector, e.g. "G1 Young Generation".
+     */
+    private final Map<String, Long> gcCollections;
+    private final Map<String, Long> gcMillis;
+
+    public JvmStats(long uptimeSeconds, long heapUsedBytes, long heapCommittedBytes, long heapMaxBytes,
+                    long nonHeapUsedBytes, int threads, Map<String, Long> gcCollections, Map<String, Long> gcMillis) {
+        this.uptimeSeconds = uptimeSeconds;
+        this.heapUsedBytes = heapUsedBytes;
+        this.heapCommittedBytes = heapCommittedBytes;
+        this.heapMaxBytes = heapMaxBytes;
+        this.nonHeapUsedBytes = nonHeapUsedBytes;
+        this.threads = threads;
+        this.gcCollections = gcCollections;
+        this.gcMillis = gcMillis;
+    }
+
+    /**
+     * @return the figures of this JVM now
+     */
+    public static JvmStats current() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        Map<String, Long> collections = new LinkedHashMap<>();
+        Map<String, Long> millis = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections.put(collector.getName(), collector.getCollectionCount());
+            millis.put(collector.getName(), collector.getCollectionTime());
+        }
+        return new JvmStats(ManagementFactory.getRuntimeMXBean().getUptime() / 1000,
+                heap.getUsed(), heap.getCommitted(), heap.getMax(),
+                memory.getNonHeapMemoryUsage().getUsed(),
+                ManagementFactory.getThreadMXBean().getThreadCount(),
+                collections, millis);
+    }
+
+    public long getUptimeSeconds() {
+        return uptimeSeconds;
+    }
+
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    public long getHeapCommittedBytes() {
+        return heapCommittedBytes;
+    }
+
+    public long getHeapMaxBytes() {
+        return heapMaxBytes;
+    }
+
+    public long getNonHeapUsedBytes() {
+        return nonHeapUsedBytes;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Map<String, Long> getGcCollections() {
+        return gcCollections;
+    }
+
+    public Map<String, Long> getGcMillis() {
+        return gcMillis;
+    }
+}
@@ -0,0 +1,63 @@
+package student.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The count, mean and percentiles of a LatencyHistogram at one moment, in microseconds, as reported by
+ * the metrics endpoint.
+ */
+public class LatencySummary {
+    private final long count;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    public LatencySummary(long count, long meanMicros, long p50Micros, long p99Micros, long p999Micros,
+                          long maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * @param histogram the latencies
+     * @return a summary of what the histogram holds now
+     */
+    public static LatencySummary of(LatencyHistogram histogram) {
+        return new LatencySummary(histogram.getCount(),
+                TimeUnit.NANOSECONDS.toMicros((long) histogram.getMean()),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(99.9)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getMax()));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+}
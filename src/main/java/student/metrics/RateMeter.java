@@ -0,0 +1,83 @@
+package student.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events and their rate over the last few seconds, from any number of threads at once.
+ *
+ * Events are counted in a LongAdder for the total and in one of a ring of per-second LongAdders for the
+ * rate, so marking an event never waits for other threads. A slot is reset when the ring comes back
+ * around to it; an event marked by another thread at the very moment of that reset may be lost from
+ * the rate, never from the total.
+ */
+public final class RateMeter {
+    private static final int SLOTS = 64; // a power of two, more than MAX_WINDOW
+    /**
+     * The most seconds a rate can be taken over.
+     */
+    public static final int MAX_WINDOW = SLOTS - 2;
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder[] slots = new LongAdder[SLOTS];
+    private final AtomicLongArray slotSeconds = new AtomicLongArray(SLOTS);
+
+    public RateMeter() {
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new LongAdder();
+            slotSeconds.set(i, -1);
+        }
+    }
+
+    /**
+     * Counts one event now.
+     */
+    public void mark() {
+        mark(now());
+    }
+
+    void mark(long second) {
+        total.increment();
+        int slot = (int) (second & (SLOTS - 1));
+        long slotSecond = slotSeconds.get(slot);
+        if (slotSecond != second && slotSeconds.compareAndSet(slot, slotSecond, second)) {
+            slots[slot].reset();
+        }
+        slots[slot].increment();
+    }
+
+    /**
+     * @return the number of events since the meter was made
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * Gets the rate over the last whole seconds; the second that is still going on does not count.
+     * @param seconds how many seconds to average over, from 1 to MAX_WINDOW
+     * @return events per second
+     */
+    public double getRate(int seconds) {
+        return getRate(seconds, now());
+    }
+
+    double getRate(int seconds, long second) {
+        if (seconds < 1 || seconds > MAX_WINDOW) {
+            throw new IllegalArgumentException("A rate is taken over 1 to " + MAX_WINDOW + " seconds");
+        }
+        long events = 0;
+        for (long s = second - seconds; s < second; s++) {
+            int slot = (int) (s & (SLOTS - 1));
+            if (slotSeconds.get(slot) == s) {
+                events += slots[slot].sum();
+            }
+        }
+        return (double) events / seconds;
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+}
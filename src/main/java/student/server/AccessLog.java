@@ -0,0 +1,324 @@
+package student.server;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+import student.adventure.Json;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A structured access log: one JSON line per request with its method, path, instance id, status and
+ * latency, and for a sampled fraction of requests the request and response bodies.
+ *
+ * The filters only put an entry into an AccessLogBuffer; a background thread formats the entries and
+ * writes them. Request threads never wait for log output: when the writer falls behind, new entries
+ * are dropped and the number dropped is logged instead.
+ */
+public class AccessLog implements ContainerRequestFilter, ContainerResponseFilter, ContainerLifecycleListener {
+    /**
+     * The most characters of a request or response body that are kept.
+     */
+    static final int MAX_PAYLOAD = 4096;
+
+    private static final String START = AccessLog.class.getName() + ".start";
+    private static final String REQUEST_BODY = AccessLog.class.getName() + ".requestBody";
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final Logger logger = Logger.getLogger("student.server.access");
+    /**
+     * Failed writes in a row after which the file is given up and the logger is used instead.
+     */
+    static final int MAX_WRITE_FAILURES = 100;
+
+    private final AccessLogBuffer<Entry> buffer;
+    private final double sampleRate;
+    private final String file;
+    private final Thread writer;
+    private volatile boolean closed;
+    private int writeFailures; // in a row; only used by the writer thread
+
+    /**
+     * Creates the log and starts its writer thread.
+     * @param config the access log settings
+     */
+    public AccessLog(ServerConfig config) {
+        buffer = new AccessLogBuffer<>(config.getAccessLogCapacity());
+        sampleRate = config.getAccessLogSampleRate();
+        file = config.getAccessLogFile();
+        writer = new Thread(this::writeEntries, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * One finished request. Sampled bodies are kept as they are and only turned into text by the writer.
+     */
+    static final class Entry {
+        final long time;          // epoch millis when the request came in
+        final String method;
+        final String path;
+        final String instanceId;  // null if the path has no instance id
+        final int status;
+        final long micros;
+        final String requestBody; // null unless sampled
+        final Object responseBody;
+
+        Entry(long time, String method, String path, String instanceId, int status, long micros,
+              String requestBody, Object responseBody) {
+            this.time = time;
+            this.method = method;
+            this.path = path;
+            this.instanceId = instanceId;
+            this.status = status;
+            this.micros = micros;
+            this.requestBody = requestBody;
+            this.responseBody = responseBody;
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        request.setProperty(START, new long[] {System.currentTimeMillis(), System.nanoTime()});
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            request.setProperty(REQUEST_BODY, request.hasEntity() ? readBody(request) : "");
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        long[] start = (long[]) request.getProperty(START);
+        if (start == null) {
+            return; // failed before the request filter ran
+        }
+
+        String requestBody = (String) request.getProperty(REQUEST_BODY);
+        buffer.offer(new Entry(
+                start[0],
+                request.getMethod(),
+                request.getUriInfo().getPath(),
+                request.getUriInfo().getPathParameters().getFirst("id"),
+                response.getStatus(),
+                (System.nanoTime() - start[1]) / 1000,
+                requestBody,
+                requestBody == null ? null : response.getEntity()));
+    }
+
+    /**
+     * Reads the request body so it can be logged, and gives the request a copy to read from.
+     */
+    private static String readBody(ContainerRequestContext request) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = request.getEntityStream()) {
+            byte[] chunk = new byte[4096];
+            for (int n = in.read(chunk); n >= 0; n = in.read(chunk)) {
+                bytes.write(chunk, 0, n);
+            }
+        }
+        byte[] body = bytes.toByteArray();
+        request.setEntityStream(new ByteArrayInputStream(body));
+        return truncate(new String(body, StandardCharsets.UTF_8));
+    }
+
+    private static String truncate(String text) {
+        return text.length() <= MAX_PAYLOAD ? text : text.substring(0, MAX_PAYLOAD) + "...";
+    }
+
+    /**
+     * The writer thread: formats and writes entries as they come, and waits a little when there are none.
+     * A failure never stops it: an entry that can't be formatted is written without its response body,
+     * and when writes to the file fail MAX_WRITE_FAILURES times in a row, the log goes to the logger.
+     */
+    private void writeEntries() {
+        JsonFactory jsonFactory = Json.factory();
+        Writer out = openFile();
+        long reportedDrops = 0;
+        while (true) {
+            boolean wrote = false;
+            for (Entry entry = buffer.poll(); entry != null; entry = buffer.poll()) {
+                try {
+                    out = write(format(jsonFactory, entry), out);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Could not log " + entry.method + " " + entry.path, e);
+                }
+                wrote = true;
+            }
+
+            long dropped = buffer.getDropped();
+            if (dropped != reportedDrops) {
+                out = write("{\"dropped\":" + (dropped - reportedDrops) + "}", out);
+                reportedDrops = dropped;
+                wrote = true;
+            }
+
+            if (wrote) {
+                out = flush(out);
+            } else if (closed) {
+                closeQuietly(out);
+                return;
+            } else {
+                LockSupport.parkNanos(IDLE_WAIT);
+            }
+        }
+    }
+
+    /**
+     * @return the access log file to append to, or null to log through the logger
+     */
+    private Writer openFile() {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not open access log " + file + "; logging to the logger instead", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes one line.
+     * @return where to write the next line: out, or null once the file has failed too often
+     */
+    private Writer write(String line, Writer out) {
+        if (out == null) {
+            logger.info(line);
+            return null;
+        }
+        try {
+            out.write(line);
+            out.write('\n');
+            writeFailures = 0;
+            return out;
+        } catch (IOException e) {
+            return failed(out, e);
+        }
+    }
+
+    private Writer flush(Writer out) {
+        if (out == null) {
+            return null;
+        }
+        try {
+            out.flush();
+            return out;
+        } catch (IOException e) {
+            return failed(out, e);
+        }
+    }
+
+    /**
+     * Counts a failed write; the line is lost. After MAX_WRITE_FAILURES in a row the file is given up.
+     */
+    private Writer failed(Writer out, IOException e) {
+        writeFailures++;
+        if (writeFailures == 1) {
+            logger.log(Level.WARNING, "Could not write to access log " + file, e);
+        }
+        if (writeFailures < MAX_WRITE_FAILURES) {
+            return out;
+        }
+        logger.warning("Access log " + file + " failed " + writeFailures + " times in a row; logging to the "
+                + "logger instead");
+        closeQuietly(out);
+        return null;
+    }
+
+    private static void closeQuietly(Writer out) {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // nothing more can be written to it either way
+            }
+        }
+    }
+
+    /**
+     * Turns an entry into one line of JSON. If the sampled response body can't be turned into JSON, the
+     * line says so instead of carrying it.
+     */
+    String format(JsonFactory jsonFactory, Entry entry) {
+        try {
+            return format(jsonFactory, entry, true);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Could not format the response of " + entry.method + " " + entry.path, e);
+            try {
+                return format(jsonFactory, entry, false);
+            } catch (IOException impossible) {
+                throw new UncheckedIOException(impossible); // writing to a StringWriter does not fail
+            }
+        }
+    }
+
+    private String format(JsonFactory jsonFactory, Entry entry, boolean withResponse) throws IOException {
+        StringWriter line = new StringWriter(128);
+        try (JsonGenerator json = jsonFactory.createGenerator(line)) {
+            json.writeStartObject();
+            json.writeNumberField("time", entry.time);
+            json.writeStringField("method", entry.method);
+            json.writeStringField("path", entry.path);
+            if (entry.instanceId != null) {
+                json.writeStringField("id", entry.instanceId);
+            }
+            json.writeNumberField("status", entry.status);
+            json.writeNumberField("micros", entry.micros);
+            if (entry.requestBody != null) {
+                json.writeStringField("request", entry.requestBody);
+                if (!withResponse) {
+                    json.writeBooleanField("responseUnavailable", true);
+                } else {
+                    json.writeStringField("response", entry.responseBody == null ? ""
+                            : truncate(Json.mapper().writeValueAsString(entry.responseBody)));
+                }
+            }
+            json.writeEndObject();
+        }
+        return line.toString();
+    }
+
+    /**
+     * Stops the writer once every entry that was added has been written.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void onStartup(Container container) {
+    }
+
+    @Override
+    public void onReload(Container container) {
+    }
+
+    @Override
+    public void onShutdown(Container container) {
+        close();
+    }
+}
@@ -0,0 +1,82 @@
+package student.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded ring buffer that any number of threads add to and one thread takes from, without locks.
+ *
+ * A producer claims a slot by moving the tail forward with compare-and-set and then publishes its
+ * entry into the slot. The consumer takes entries in the order their slots were claimed; a claimed
+ * slot whose entry is not published yet stops it until the next poll. When the buffer is full, offer()
+ * drops the entry and counts it instead of waiting.
+ * @param <E> the type of the entries
+ */
+class AccessLogBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();  // next slot to claim
+    private final AtomicLong head = new AtomicLong();  // next slot to take; only the consumer moves it
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity the least number of entries the buffer holds; rounded up to a power of two
+     */
+    AccessLogBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an entry if there is room. Never blocks.
+     * @param entry the entry, not null
+     * @return false if the buffer was full and the entry was dropped
+     */
+    boolean offer(E entry) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head.get() > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+
+        slots.lazySet((int) claimed & mask, entry);
+        return true;
+    }
+
+    /**
+     * Takes the oldest entry. Must only be called by the one consumer thread.
+     * @return the entry, or null if there is none ready
+     */
+    E poll() {
+        long taken = head.get();
+        int slot = (int) taken & mask;
+        E entry = slots.get(slot);
+        if (entry == null) {
+            return null;
+        }
+        slots.lazySet(slot, null);
+        head.lazySet(taken + 1);
+        return entry;
+    }
+
+    /**
+     * @return the number of entries dropped because the buffer was full
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    int getCapacity() {
+        return mask + 1;
+    }
+}
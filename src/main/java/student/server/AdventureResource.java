@@ -1,9 +1,21 @@
 package student.server;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import student.metrics.JvmStats;
+
 import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @Path("/")
 public class AdventureResource {
@@ -12,6 +24,33 @@ public class AdventureResource {
      */
     private static AdventureService service = new myAdventureService()  ;
 
+    /**
+     * The event streams of game states, for clients that watch a game instead of polling it.
+     */
+    private static final StatusStreams streams = new StatusStreams(
+            ServerConfig.fromSystemProperties().getEventBufferSize(),
+            ServerConfig.fromSystemProperties().getEventWriterThreads());
+
+    /**
+     * The most rooms returned by one request for a game's history.
+     */
+    private static final int MAX_HISTORY_PAGE = 500;
+
+    /**
+     * The most commands accepted in one batch.
+     */
+    private static final int MAX_BATCH = 100;
+
+    /**
+     * The most games created by one bulk create.
+     */
+    private static final int MAX_BULK_CREATE = 100_000;
+
+    /**
+     * Clients may keep a game state, but must check with the server before showing it again.
+     */
+    private static final CacheControl REVALIDATE = CacheControl.valueOf("no-cache");
+
     /**
      * The API endpoint to test connectivity.
      * @return the string "pong" if connection was successful
@@ -31,6 +70,7 @@ public class AdventureResource {
     @Path("reset")
     public Response reset() {
         service.reset();
+        streams.closeAll();
         return Response.ok().build();
     }
 
@@ -44,23 +84,82 @@ public class AdventureResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response create() throws AdventureException, FileNotFoundException {
         int id = service.newGame();
-        return getGame(id);
+        return gameStatus(id, null);
+    }
+
+    /**
+     * The API endpoint to create many instances of the adventure game at once, e.g. for a class or a
+     * load test. The games get consecutive IDs; their states are not sent back.
+     * @param request the number of games, at most MAX_BULK_CREATE, and optionally the layout to play on
+     * @return the range of IDs of the new games
+     * @throws AdventureException if the games could not be created
+     */
+    @POST
+    @Path("create/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createBulk(BulkCreate request) throws AdventureException, FileNotFoundException {
+        if (request == null || request.getCount() < 1 || request.getCount() > MAX_BULK_CREATE) {
+            return badRequest("A bulk create needs a count from 1 to " + MAX_BULK_CREATE + ".");
+        }
+
+        try {
+            return Response.ok(service.newGames(request.getCount(), request.getLayout())).build();
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
     }
 
     /**
-     * The API endpoint to query the state of a game instance.
+     * The API endpoint to query the state of a game instance. The response carries an ETag; a request
+     * whose If-None-Match header names the current version gets 304 Not Modified without a body.
      * @param id the ID of the game instance
+     * @param request the request, used to check its If-None-Match header
      * @return a valid game state if found; an error response if not found
      */
     @GET
     @Path("instance/{id: \\d+}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getGame(@PathParam("id") int id) {
-        GameStatus status = service.getGame(id);
-        if (status == null) {
+    public Response getGame(@PathParam("id") int id, @Context Request request) {
+        return gameStatus(id, request);
+    }
+
+    /**
+     * The API endpoint to watch a game instance. The stream starts with the current state of the game and
+     * gets a "status" event with the new state after every command, until the game is destroyed.
+     * @param id the ID of the game instance
+     * @param sink the client's event stream
+     * @param sse used to build events
+     */
+    @GET
+    @Path("instance/{id: \\d+}/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void watchGame(@PathParam("id") int id, @Context SseEventSink sink, @Context Sse sse) {
+        if (service.getGame(id) == null) {
+            throw new BadRequestException(instanceNotFound(id));
+        }
+        // if the game is destroyed in the meantime, the stream is closed
+        streams.subscribe(id, sink, sse, () -> service.getGame(id));
+    }
+
+    /**
+     * The API endpoint to page through the rooms visited in a game instance.
+     * @param id the ID of the game instance
+     * @param from the number of the first visit wanted, counting from 0
+     * @param limit the most rooms to return, at most MAX_HISTORY_PAGE
+     * @return a page of the history if found; an error response if not found
+     */
+    @GET
+    @Path("instance/{id: \\d+}/history")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getHistory(@PathParam("id") int id,
+                               @QueryParam("from") @DefaultValue("0") long from,
+                               @QueryParam("limit") @DefaultValue("50") int limit) {
+        HistoryPage page = service.getHistory(id, Math.max(0, from), Math.max(0, Math.min(limit, MAX_HISTORY_PAGE)));
+        if (page == null) {
             return instanceNotFound(id);
         }
-        return Response.ok(status).build();
+        return Response.ok(page).build();
     }
 
     /**
@@ -75,6 +174,7 @@ public class AdventureResource {
         if (!service.destroyGame(id)) {
             return instanceNotFound(id);
         }
+        streams.close(id);
 
         return Response.ok().build();
     }
@@ -92,7 +192,38 @@ public class AdventureResource {
     public Response handleCommand(@PathParam("id") int id, Command command) {
         service.executeCommand(id, command);
 
-        return getGame(id);
+        GameStatus status = service.getGame(id);
+        if (status != null) {
+            streams.publish(status);
+        }
+        return statusResponse(id, status, null);
+    }
+
+    /**
+     * The API endpoint to run several commands on a game instance in one request. The commands run in
+     * order, with no other command on the instance in between.
+     * @param id the ID of the game instance currently being played
+     * @param commands the commands issued by the client, at most MAX_BATCH
+     * @param stopOn "failure" to stop after a command that could not be done, "invalid" to stop only after
+     *               a command that was not understood, or "none" to run every command
+     * @return the result of every command that ran and the final state of the game
+     */
+    @POST
+    @Path("instance/{id: \\d+}/commands")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response handleCommands(@PathParam("id") int id, List<Command> commands,
+                                   @QueryParam("stopOn") @DefaultValue("failure") BatchResult.StopOn stopOn) {
+        if (commands == null || commands.size() > MAX_BATCH || commands.contains(null)) {
+            return badRequest("A batch needs a list of at most " + MAX_BATCH + " commands.");
+        }
+
+        BatchResult result = service.executeCommands(id, commands, stopOn);
+        if (result == null) {
+            return instanceNotFound(id);
+        }
+        streams.publish(result.getStatus());
+        return Response.ok(result).build();
     }
 
     /**
@@ -106,14 +237,82 @@ public class AdventureResource {
         return Response.ok(service.fetchLeaderboard()).build();
     }
 
+    /**
+     * The API endpoint to report what the server is doing: requests and latency by endpoint, live games,
+     * commands by verb, layout load times, idle game eviction, and the heap, GC and threads of the JVM.
+     * @param configuration the application, to find the request metrics the server registered
+     * @return a response with the metrics
+     */
+    @GET
+    @Path("metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response metrics(@Context Configuration configuration) {
+        Map<String, ServerMetrics.EndpointStats> endpoints = Collections.emptyMap();
+        for (Object instance : configuration.getInstances()) {
+            if (instance instanceof RequestMetrics) {
+                endpoints = ((RequestMetrics) instance).getStats();
+            }
+        }
+        return Response.ok(new ServerMetrics(endpoints, service.getEngineStats(), service.getEvictionStats(),
+                JvmStats.current())).build();
+    }
+
+    /**
+     * The API endpoint to report how many idle games were spilled to disk and read back.
+     * @return a response with the eviction counters
+     */
+    @GET
+    @Path("metrics/eviction")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response evictionMetrics() {
+        return Response.ok(service.getEvictionStats()).build();
+    }
+
+    /**
+     * Helper method to build a response with the state of a game and its ETag.
+     * @param id the instance ID
+     * @param request the request to check for a matching If-None-Match header, or null to always send the state
+     */
+    private Response gameStatus(int id, Request request) {
+        return statusResponse(id, service.getGame(id), request);
+    }
+
+    /**
+     * Helper method to build a response with a state of a game and its ETag.
+     * @param id the instance ID
+     * @param status the state of the game, or null if there is no such game
+     * @param request the request to check for a matching If-None-Match header, or null to always send the state
+     */
+    private Response statusResponse(int id, GameStatus status, Request request) {
+        if (status == null) {
+            return instanceNotFound(id);
+        }
+
+        EntityTag tag = new EntityTag(Long.toString(status.getVersion()));
+        Response.ResponseBuilder notModified = request == null ? null : request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.cacheControl(REVALIDATE).build();
+        }
+        return Response.ok(status).tag(tag).cacheControl(REVALIDATE).build();
+    }
+
     /**
      * Helper method to build an `instanceNotFound` error.
      * @param id the instance ID
      */
     private Response instanceNotFound(int id) {
+        return badRequest("No game found with id '" + id + "'.");
+    }
+
+    /**
+     * Helper method to build an error for a request that can't be done.
+     * @param message what is wrong with the request
+     */
+    private Response badRequest(String message) {
         return Response
                 .status(Response.Status.BAD_REQUEST)
-                .entity(new Error("No game found with id '" + id + "'."))
+                .entity(new Error(message))
+                .type(MediaType.APPLICATION_JSON_TYPE) // also for endpoints that produce something else
                 .build();
     }
 
@@ -2,29 +2,34 @@ package student.server;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.logging.Level;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
 import javax.ws.rs.core.MultivaluedMap;
 
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http2.Http2AddOn;
+import org.glassfish.grizzly.http2.Http2Configuration;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.logging.LoggingFeature;
-import org.glassfish.jersey.logging.LoggingFeature.Verbosity;
 import org.glassfish.jersey.server.ResourceConfig;
 
 
 public class AdventureServer {
-    private static final URI BASE_URI = URI.create("https://0.0.0.0:8080/adventure/v1");
-    private static final String KEYSTORE_SERVER_FILE = "src/main/resources/keystore_server";
-    private static final String KEYSTORE_SERVER_PWD = "asdfgh";
-    private static final String TRUSTORE_SERVER_FILE = "src/main/resources/truststore_server";
-    private static final String TRUSTORE_SERVER_PWD = "asdfgh";
+    private static final String PATH = "/adventure/v1";
+    private static final String PLAINTEXT_LISTENER = "plaintext";
+    private static final String SESSION_TICKETS = "jdk.tls.server.enableSessionTicketExtension";
 
     /**
      * Nested class for use of the config method.
@@ -42,20 +47,70 @@ public class AdventureServer {
     }
 
     public static HttpServer createServer(final Class<?> resourceClass) throws IOException {
+        return createServer(resourceClass, ServerConfig.fromSystemProperties());
+    }
+
+    /**
+     * Creates the server, with its listeners and request threads set up as the configuration says. The
+     * server is not started yet.
+     * @param resourceClass the resource to serve
+     * @param config the settings
+     * @return the server
+     */
+    public static HttpServer createServer(final Class<?> resourceClass, ServerConfig config) throws IOException {
         final ResourceConfig resourceConfig = new ResourceConfig(resourceClass);
-        resourceConfig.register(
-                new LoggingFeature(Logger.getLogger(LoggingFeature.DEFAULT_LOGGER_NAME), Level.INFO, Verbosity.PAYLOAD_ANY, 10000)
-        );
+        // requests are logged off the request threads; bodies only for the sampled fraction
+        resourceConfig.register(new AccessLog(config));
+        // counts and times requests by endpoint for the metrics endpoint
+        resourceConfig.register(new RequestMetrics());
         resourceConfig.register(CORSResponseFilter.class);
+        resourceConfig.register(JsonMapperResolver.class);
+
+        final HttpServer server;
+        if (config.getPort() != 0) {
+            server = GrizzlyHttpServerFactory.createHttpServer(
+                    URI.create("https://" + config.getHost() + ":" + config.getPort() + PATH),
+                    resourceConfig,
+                    true /* secure */,
+                    sslEngineConfigurator(config),
+                    false /* the worker threads can only be set before it starts */
+            );
+            if (config.getPlaintextPort() != 0) {
+                // shares the handlers of the HTTPS listener, so it serves the same paths
+                server.addListener(new NetworkListener(PLAINTEXT_LISTENER,
+                        config.getPlaintextHost(), config.getPlaintextPort()));
+            }
+        } else {
+            server = GrizzlyHttpServerFactory.createHttpServer(
+                    URI.create("http://" + config.getPlaintextHost() + ":" + config.getPlaintextPort() + PATH),
+                    resourceConfig,
+                    false);
+        }
+        if (config.isHttp2()) {
+            enableHttp2(server, config);
+        }
+        configureWorkers(server, config);
+
+        return server;
+    }
+
+    /**
+     * Sets up TLS for the HTTPS listener, with the configured key stores and session cache.
+     */
+    private static SSLEngineConfigurator sslEngineConfigurator(ServerConfig config) {
+        if (System.getProperty(SESSION_TICKETS) == null) {
+            // read by the JDK when it first needs it, so a value given on the command line wins
+            System.setProperty(SESSION_TICKETS, Boolean.toString(config.isTlsSessionTickets()));
+        }
 
         // Grizzly ssl configuration
         SSLContextConfigurator sslContext = new SSLContextConfigurator();
 
         // set up security context
-        sslContext.setKeyStoreFile(KEYSTORE_SERVER_FILE); // contains server keypair
-        sslContext.setKeyStorePass(KEYSTORE_SERVER_PWD);
-        sslContext.setTrustStoreFile(TRUSTORE_SERVER_FILE); // contains client certificate
-        sslContext.setTrustStorePass(TRUSTORE_SERVER_PWD);
+        sslContext.setKeyStoreFile(config.getKeystoreFile()); // contains server keypair
+        sslContext.setKeyStorePass(config.getKeystorePassword());
+        sslContext.setTrustStoreFile(config.getTruststoreFile()); // contains client certificate
+        sslContext.setTrustStorePass(config.getTruststorePassword());
 
         if (!sslContext.validateConfiguration(true)) {
             Logger.getLogger(LoggingFeature.DEFAULT_LOGGER_NAME).info("self-signed SSL not valid.");
@@ -63,13 +118,77 @@ public class AdventureServer {
             Logger.getLogger(LoggingFeature.DEFAULT_LOGGER_NAME).info("self-signed SSL worked!");
         }
 
-        final HttpServer server = GrizzlyHttpServerFactory.createHttpServer(
-                BASE_URI,
-                resourceConfig,
-                true /* secure */,
-                new SSLEngineConfigurator(sslContext).setClientMode(false).setNeedClientAuth(false)
-        );
+        // sessions the cache still holds are resumed with an abbreviated handshake
+        SSLContext context = sslContext.createSSLContext(true);
+        SSLSessionContext sessions = context.getServerSessionContext();
+        sessions.setSessionCacheSize(config.getTlsSessionCacheSize());
+        sessions.setSessionTimeout(config.getTlsSessionTimeoutSeconds());
 
-        return server;
+        return new SSLEngineConfigurator(context, false /* client mode */, false /* need client auth */,
+                false /* want client auth */);
+    }
+
+    /**
+     * Lets the plaintext listener speak HTTP/2. Browsers only use HTTP/2 over TLS, which a proxy in
+     * front of the server terminates; Grizzly 2.4 can only negotiate HTTP/2 in TLS with an ALPN
+     * library for Java 8, so the HTTPS listener stays on HTTP/1.1.
+     */
+    private static void enableHttp2(HttpServer server, ServerConfig config) {
+        Http2Configuration http2 = Http2Configuration.builder()
+                .maxConcurrentStreams(config.getHttp2MaxStreams())
+                .build();
+        boolean enabled = false;
+        for (NetworkListener listener : server.getListeners()) {
+            if (!listener.isSecure()) {
+                listener.registerAddOn(new Http2AddOn(http2));
+                enabled = true;
+            }
+        }
+        if (!enabled) {
+            Logger.getLogger(LoggingFeature.DEFAULT_LOGGER_NAME).warning(
+                    "HTTP/2 is only served on the plaintext listener; set adventure.server.plaintextPort to use it");
+        }
+    }
+
+    /**
+     * Puts request handling of every listener on the threads of the configured execution model.
+     */
+    private static void configureWorkers(HttpServer server, ServerConfig config) {
+        ExecutionModel model = config.getExecutionModel();
+        if (model == ExecutionModel.DEFAULT) {
+            return;
+        }
+
+        ExecutorService virtualThreads = model == ExecutionModel.VIRTUAL ? virtualThreadExecutor() : null;
+        if (model == ExecutionModel.VIRTUAL && virtualThreads == null) {
+            Logger.getLogger(LoggingFeature.DEFAULT_LOGGER_NAME).warning(
+                    "This JDK has no virtual threads; using a fixed pool of " + config.getWorkerThreads() + " threads");
+        }
+
+        for (NetworkListener listener : server.getListeners()) {
+            TCPNIOTransport transport = listener.getTransport();
+            if (virtualThreads != null) {
+                transport.setWorkerThreadPool(virtualThreads);
+            } else {
+                transport.setWorkerThreadPoolConfig(ThreadPoolConfig.defaultConfig()
+                        .setPoolName("adventure-worker")
+                        .setCorePoolSize(config.getWorkerThreads())
+                        .setMaxPoolSize(config.getWorkerThreads())
+                        .setQueueLimit(config.getWorkerQueueLimit()));
+            }
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task. The project is built for Java 8, so the
+     * factory is looked up at run time.
+     * @return the executor, or null if this JDK has no virtual threads or they are not enabled
+     */
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // no such method before JDK 19; a preview feature that is not enabled on 19 and 20
+        }
     }
 }
\ No newline at end of file
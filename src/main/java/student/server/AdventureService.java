@@ -1,6 +1,9 @@
 package student.server;
 
+import student.adventure.Layout;
+
 import java.io.FileNotFoundException;
+import java.util.List;
 import java.util.SortedMap;
 
 /**
@@ -18,13 +21,31 @@ public interface AdventureService {
      */
     int newGame() throws AdventureException, FileNotFoundException;
 
+    /**
+     * Creates many Adventure games at once, with consecutive IDs, and stores them.
+     * @param count the number of games to create
+     * @param layout the map the games are played on, or null for the service's own map
+     * @return the IDs of the games
+     * @throws IllegalArgumentException if the count is not positive or the layout is not valid
+     */
+    InstanceRange newGames(int count, Layout layout) throws AdventureException, FileNotFoundException;
+
     /**
      * Returns the state of the game instance associated with the given ID.
      * @param id the instance id
-     * @return the current state of the game
+     * @return the current state of the game, or null if there is no game with that ID
      */
     GameStatus getGame(int id);
 
+    /**
+     * Returns a page of the rooms visited in the game instance associated with the given ID.
+     * @param id the instance id
+     * @param fromVisit the number of the first visit wanted, counting from 0
+     * @param limit the most rooms to return
+     * @return the page, or null if there is no game with that ID
+     */
+    HistoryPage getHistory(int id, long fromVisit, int limit);
+
     /**
      * Removes & destroys a game instance with the given ID.
      * @param id the instance id
@@ -39,11 +60,33 @@ public interface AdventureService {
      */
     void executeCommand(int id, Command command);
 
+    /**
+     * Executes commands in order on the game instance with the given id. No other command runs on the
+     * instance until the batch is done.
+     * @param id the instance id
+     * @param commands the issued commands
+     * @param stopOn which kind of command result ends the batch early
+     * @return the result of each command that ran and the final state, or null if there is no game with that ID
+     */
+    BatchResult executeCommands(int id, List<Command> commands, BatchResult.StopOn stopOn);
+
     /**
      * Returns a sorted leaderboard of player "high" scores.
      * @return a sorted map of player names to scores
      */
     SortedMap<String, Integer> fetchLeaderboard();
+
+    /**
+     * Returns the counters of idle games spilled to disk and read back.
+     * @return the counters; not enabled if games are never spilled
+     */
+    EvictionStats getEvictionStats();
+
+    /**
+     * Gets what the game engine has done: live games, commands by verb and layout load times.
+     * @return the engine figures so far
+     */
+    EngineStats getEngineStats();
 }
 
 
@@ -0,0 +1,108 @@
+package student.server;
+
+import java.util.List;
+
+/**
+ * The result of a batch of commands run on one game instance: what each command that ran returned,
+ * and the state of the game after the last one.
+ */
+public class BatchResult {
+    /**
+     * When a batch stops before its last command.
+     */
+    public enum StopOn {
+        /** Run every command. */
+        NONE,
+        /** Stop after a command that was not understood. */
+        INVALID,
+        /** Stop after a command that was not understood or could not be done, e.g. going through a wall. */
+        FAILURE;
+
+        /**
+         * Parses a query parameter, in any case, e.g. "failure".
+         */
+        public static StopOn fromString(String value) {
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    /**
+     * The result of one command of a batch.
+     */
+    public static class CommandResult {
+        private final String commandName;
+        private final String commandValue;
+        /**
+         * The text the game returned for the command, e.g. "keep going" or "I can't go \"up\"!".
+         */
+        private final String message;
+        /**
+         * Whether the command could not be done. A failed command changes nothing.
+         */
+        private final boolean failed;
+
+        public CommandResult(String commandName, String commandValue, String message, boolean failed) {
+            this.commandName = commandName;
+            this.commandValue = commandValue;
+            this.message = message;
+            this.failed = failed;
+        }
+
+        public String getCommandName() {
+            return commandName;
+        }
+
+        public String getCommandValue() {
+            return commandValue;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * The instance ID the batch ran on.
+     */
+    private final int id;
+    /**
+     * The number of commands sent in the batch.
+     */
+    private final int commandCount;
+    /**
+     * The results of the commands that ran, in order. Commands after the one the batch stopped on are
+     * not in the list.
+     */
+    private final List<CommandResult> results;
+    /**
+     * The state of the game after the last command that ran.
+     */
+    private final GameStatus status;
+
+    public BatchResult(int id, int commandCount, List<CommandResult> results, GameStatus status) {
+        this.id = id;
+        this.commandCount = commandCount;
+        this.results = results;
+        this.status = status;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    public List<CommandResult> getResults() {
+        return results;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+}
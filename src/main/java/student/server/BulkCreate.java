@@ -0,0 +1,34 @@
+package student.server;
+
+import student.adventure.Layout;
+
+/**
+ * A request to create many game instances at once.
+ */
+public class BulkCreate {
+    /**
+     * The number of games to create.
+     */
+    private int count;
+    /**
+     * The map every new game is played on. When it is missing, the server's own map is used.
+     */
+    private Layout layout;
+
+    public BulkCreate() {
+
+    }
+
+    public BulkCreate(int count, Layout layout) {
+        this.count = count;
+        this.layout = layout;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+}
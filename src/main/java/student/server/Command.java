@@ -28,6 +28,12 @@ public class Command {
         this.commandValue = commandValue;
     }
 
+    public Command(String commandName, String commandValue, String playerName) {
+        this.commandName = commandName;
+        this.commandValue = commandValue;
+        this.playerName = playerName;
+    }
+
     public String getCommandName() {
         return commandName;
     }
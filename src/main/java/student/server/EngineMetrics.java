@@ -0,0 +1,94 @@
+package student.server;
+
+import student.adventure.CommandTable;
+import student.adventure.CommandType;
+import student.adventure.LoadProgress;
+import student.metrics.LatencyHistogram;
+import student.metrics.LatencySummary;
+import student.metrics.RateMeter;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the game engine of a service has done: commands by verb, and how long loading layouts took.
+ * Recording only adds to LongAdders and histograms, so it never makes request threads wait for each other.
+ */
+class EngineMetrics {
+    /**
+     * The seconds command rates are averaged over.
+     */
+    static final int RATE_WINDOW = 10;
+
+    private final Map<CommandType, RateMeter> commands = new EnumMap<>(CommandType.class);
+    private final RateMeter notUnderstood = new RateMeter();
+    private final ConcurrentMap<String, LatencyHistogram> loadPhases = new ConcurrentHashMap<>();
+
+    EngineMetrics() {
+        for (CommandType type : CommandType.values()) {
+            commands.put(type, new RateMeter());
+        }
+    }
+
+    /**
+     * Counts a command that was run.
+     * @param command the command as the player sent it
+     */
+    void command(Command command) {
+        CommandType type = CommandTable.lookup(command.getCommandName());
+        (type == null ? notUnderstood : commands.get(type)).mark();
+    }
+
+    /**
+     * Records how long one phase of loading a layout took, e.g. "parse" or "compile".
+     */
+    void loadPhase(String phase, long nanos) {
+        loadPhases.computeIfAbsent(phase, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * @param next where progress reports go as well
+     * @return a listener that records the time of every phase and passes every report on
+     */
+    LoadProgress recording(LoadProgress next) {
+        return new LoadProgress() {
+            @Override
+            public void roomsLoaded(String phase, long rooms) {
+                next.roomsLoaded(phase, rooms);
+            }
+
+            @Override
+            public void phaseFinished(String phase, long rooms, long nanos) {
+                loadPhase(phase, nanos);
+                next.phaseFinished(phase, rooms, nanos);
+            }
+        };
+    }
+
+    /**
+     * @param liveInstances the number of games of the service
+     * @param mapLoadNanos how long loading the map of new games took, or -1 if it is not loaded
+     * @return the figures so far
+     */
+    EngineStats getStats(int liveInstances, long mapLoadNanos) {
+        Map<String, EngineStats.CommandStats> commandStats = new LinkedHashMap<>();
+        for (Map.Entry<CommandType, RateMeter> entry : commands.entrySet()) {
+            commandStats.put(entry.getKey().name().toLowerCase(Locale.ROOT), stats(entry.getValue()));
+        }
+        commandStats.put("unknown", stats(notUnderstood));
+
+        Map<String, LatencySummary> loads = new LinkedHashMap<>();
+        loadPhases.forEach((phase, histogram) -> loads.put(phase, LatencySummary.of(histogram)));
+        return new EngineStats(liveInstances, commandStats,
+                mapLoadNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(mapLoadNanos), loads);
+    }
+
+    private static EngineStats.CommandStats stats(RateMeter meter) {
+        return new EngineStats.CommandStats(meter.getCount(), meter.getRate(RATE_WINDOW));
+    }
+}
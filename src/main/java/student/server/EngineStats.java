@@ -0,0 +1,76 @@
+package student.server;
+
+import student.metrics.LatencySummary;
+
+import java.util.Map;
+
+/**
+ * Figures of the game engine, as reported by the metrics endpoint.
+ */
+public class EngineStats {
+    /**
+     * Games of the service, in memory or spilled.
+     */
+    private final int liveInstances;
+    /**
+     * Commands run, by verb ("go", "take", ...), with "unknown" for commands that were not understood.
+     */
+    private final Map<String, CommandStats> commands;
+    /**
+     * Milliseconds it took to load the map new games are played on, or -1 if it is not loaded.
+     */
+    private final long mapLoadMillis;
+    /**
+     * Time taken by each phase of the layouts loaded by the service, e.g. "parse" and "link" of a map
+     * file, "validate" and "compile" of a bulk create layout.
+     */
+    private final Map<String, LatencySummary> layoutLoads;
+
+    public EngineStats(int liveInstances, Map<String, CommandStats> commands, long mapLoadMillis,
+                       Map<String, LatencySummary> layoutLoads) {
+        this.liveInstances = liveInstances;
+        this.commands = commands;
+        this.mapLoadMillis = mapLoadMillis;
+        this.layoutLoads = layoutLoads;
+    }
+
+    public int getLiveInstances() {
+        return liveInstances;
+    }
+
+    public Map<String, CommandStats> getCommands() {
+        return commands;
+    }
+
+    public long getMapLoadMillis() {
+        return mapLoadMillis;
+    }
+
+    public Map<String, LatencySummary> getLayoutLoads() {
+        return layoutLoads;
+    }
+
+    /**
+     * How many commands of one verb were run, in all and per second lately.
+     */
+    public static class CommandStats {
+        private final long count;
+        private final double perSecond;
+
+        public CommandStats(long count, double perSecond) {
+            this.count = count;
+            this.perSecond = perSecond;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the commands per second over the last EngineMetrics.RATE_WINDOW seconds
+         */
+        public double getPerSecond() {
+            return perSecond;
+        }
+    }
+}
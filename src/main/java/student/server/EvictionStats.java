@@ -0,0 +1,80 @@
+package student.server;
+
+/**
+ * Counters of idle game eviction, as reported by the metrics endpoint.
+ */
+public class EvictionStats {
+    /**
+     * Whether games are evicted at all.
+     */
+    private final boolean enabled;
+    /**
+     * Games in memory.
+     */
+    private final int residentGames;
+    /**
+     * Games spilled to disk and not read back yet.
+     */
+    private final int spilledGames;
+    /**
+     * Games spilled since the server started.
+     */
+    private final long evictions;
+    /**
+     * Spilled games read back because they were used again.
+     */
+    private final long rehydrations;
+    /**
+     * Bytes written to spill files.
+     */
+    private final long spilledBytes;
+    /**
+     * Sweeps over every game, and how long the last one took.
+     */
+    private final long sweeps;
+    private final long lastSweepMicros;
+
+    public EvictionStats(boolean enabled, int residentGames, int spilledGames, long evictions, long rehydrations,
+                         long spilledBytes, long sweeps, long lastSweepMicros) {
+        this.enabled = enabled;
+        this.residentGames = residentGames;
+        this.spilledGames = spilledGames;
+        this.evictions = evictions;
+        this.rehydrations = rehydrations;
+        this.spilledBytes = spilledBytes;
+        this.sweeps = sweeps;
+        this.lastSweepMicros = lastSweepMicros;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getResidentGames() {
+        return residentGames;
+    }
+
+    public int getSpilledGames() {
+        return spilledGames;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getRehydrations() {
+        return rehydrations;
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    public long getSweeps() {
+        return sweeps;
+    }
+
+    public long getLastSweepMicros() {
+        return lastSweepMicros;
+    }
+}
@@ -0,0 +1,204 @@
+package student.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Spills games nobody is playing to disk, so games abandoned in a closed browser tab don't stay in
+ * memory until the server restarts.
+ *
+ * A background thread sweeps the registry every so often. Games idle for longer than the idle time are
+ * spilled, and if more games than the budget are still in memory, the least recently used ones are
+ * spilled too. A spilled game is written in the compact encoding of GameSession.writeState(), one file
+ * per game, and is read back the next time its ID is used.
+ *
+ * Spill files are only a cache of what is in memory, never synced and deleted on startup; keeping games
+ * across restarts is the journal's job.
+ */
+class Evictor implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(Evictor.class.getName());
+
+    private final File dir;
+    private final long idleNanos;      // 0 if games are never spilled for being idle
+    private final int maxResident;     // 0 if there is no limit
+    private final GameRegistry<GameSession> games;
+    private final ScheduledExecutorService sweeper;
+
+    private final AtomicLong fileNumbers = new AtomicLong();
+    private final AtomicInteger spilled = new AtomicInteger();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rehydrations = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+    private final AtomicLong sweeps = new AtomicLong();
+    private volatile long lastSweepMicros;
+
+    /**
+     * Deletes spill files left by an earlier run and starts sweeping.
+     * @param dir the directory of spill files; created if needed
+     * @param idleMillis how long a game may go unused before it is spilled, or 0 for no limit
+     * @param maxResident the most games kept in memory, or 0 for no limit
+     * @param sweepMillis the time between sweeps, or 0 to only sweep when sweep() is called
+     * @param games the games to sweep
+     * @throws IOException if the directory can't be created
+     */
+    Evictor(File dir, long idleMillis, int maxResident, long sweepMillis, GameRegistry<GameSession> games)
+            throws IOException {
+        if (idleMillis < 0 || maxResident < 0 || sweepMillis < 0) {
+            throw new IllegalArgumentException("Eviction settings can't be negative");
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create spill directory " + dir);
+        }
+        this.dir = dir;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.maxResident = maxResident;
+        this.games = games;
+        clear();
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "game-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sweepMillis > 0) {
+            sweeper.scheduleWithFixedDelay(this::sweepQuietly, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            // a failed sweep must not end the schedule
+            logger.log(Level.WARNING, "Could not sweep idle games", e);
+        }
+    }
+
+    /**
+     * Spills every game idle for too long, then the least recently used games while too many are left.
+     * @return the number of games spilled
+     */
+    int sweep() {
+        long start = System.nanoTime();
+        List<Candidate> resident = new ArrayList<>();
+        games.forEach((session, id) -> {
+            if (!session.isSpilled()) {
+                resident.add(new Candidate(id, session, session.getLastUsed()));
+            }
+        });
+
+        int count = 0;
+        List<Candidate> kept = resident;
+        if (idleNanos > 0) {
+            kept = new ArrayList<>(resident.size());
+            for (Candidate candidate : resident) {
+                if (start - candidate.usedAt > idleNanos && spill(candidate)) {
+                    count++;
+                } else {
+                    kept.add(candidate);
+                }
+            }
+        }
+        if (maxResident > 0 && kept.size() > maxResident) {
+            kept.sort(Comparator.comparingLong(candidate -> candidate.usedAt - start));
+            for (int i = 0; i < kept.size() - maxResident; i++) {
+                if (spill(kept.get(i))) {
+                    count++;
+                }
+            }
+        }
+
+        sweeps.incrementAndGet();
+        lastSweepMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        return count;
+    }
+
+    private boolean spill(Candidate candidate) {
+        // numbered, so a new game that got the ID of an old one after a reset never gets its file
+        File file = new File(dir, candidate.id + "-" + fileNumbers.incrementAndGet() + ".bin");
+        try {
+            long bytes = candidate.session.evict(candidate.usedAt, file, this);
+            if (bytes < 0) {
+                return false; // used in the meantime
+            }
+            spilled.incrementAndGet();
+            evictions.incrementAndGet();
+            spilledBytes.addAndGet(bytes);
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not spill game " + candidate.id, e);
+            file.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Called by a session that read its game back from a spill file.
+     */
+    void rehydrated(File file) {
+        rehydrations.incrementAndGet();
+        discarded(file);
+    }
+
+    /**
+     * Called by a session that no longer needs its spill file.
+     */
+    void discarded(File file) {
+        spilled.decrementAndGet();
+        if (!file.delete()) {
+            logger.warning("Could not delete spill file " + file);
+        }
+    }
+
+    /**
+     * Deletes every spill file, e.g. after every game was removed by a reset.
+     */
+    void clear() {
+        File[] files = dir.listFiles((parent, name) -> name.endsWith(".bin"));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        spilled.set(0);
+    }
+
+    /**
+     * @return the eviction counters so far
+     */
+    EvictionStats getStats() {
+        int onDisk = spilled.get();
+        return new EvictionStats(true, Math.max(0, games.size() - onDisk), onDisk, evictions.get(),
+                rehydrations.get(), spilledBytes.get(), sweeps.get(), lastSweepMicros);
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * A game in memory as the sweep found it.
+     */
+    private static final class Candidate {
+        final int id;
+        final GameSession session;
+        final long usedAt;
+
+        Candidate(int id, GameSession session, long usedAt) {
+            this.id = id;
+            this.session = session;
+            this.usedAt = usedAt;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package student.server;
+
+/**
+ * The threads requests are handled on, set with adventure.server.executor.
+ */
+public enum ExecutionModel {
+    /**
+     * Grizzly's own worker pool, sized and queued as Grizzly sees fit.
+     */
+    DEFAULT,
+    /**
+     * A fixed number of worker threads and a bounded queue. Requests that find the queue full are turned
+     * away instead of piling up.
+     */
+    FIXED,
+    /**
+     * A new virtual thread for every request, so clients that keep connections open cost little. Needs a
+     * JDK with virtual threads (21, or 19 and 20 with --enable-preview); on older ones FIXED is used.
+     */
+    VIRTUAL;
+
+    /**
+     * @param value a model, in any case, e.g. "fixed"
+     * @return the model
+     * @throws IllegalArgumentException if there is no such model
+     */
+    public static ExecutionModel fromString(String value) {
+        for (ExecutionModel model : values()) {
+            if (model.name().equalsIgnoreCase(value.trim())) {
+                return model;
+            }
+        }
+        throw new IllegalArgumentException("adventure.server.executor must be default, fixed or virtual, not \""
+                + value + "\"");
+    }
+}
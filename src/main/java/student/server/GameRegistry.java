@@ -0,0 +1,346 @@
+package student.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A thread-safe map from instance IDs to games.
+ *
+ * IDs are handed out by an atomic counter and the map is split into stripes, each an open-addressing
+ * table of primitive int keys guarded by its own lock. Requests for different games almost never wait
+ * on each other, and a lookup is a single hash probe instead of a scan over every game.
+ *
+ * @param <V> the type of game stored
+ */
+class GameRegistry<V> {
+    private static final int STRIPE_COUNT = 32; // must be a power of two
+
+    private final Stripe<V>[] stripes;
+    private final AtomicInteger nextId = new AtomicInteger();
+    /**
+     * Bumped by every clear(), always while holding every stripe lock. A game created before a clear
+     * must not be stored after it, or it could later collide with a newly handed out ID.
+     */
+    private volatile int epoch;
+
+    @SuppressWarnings("unchecked")
+    GameRegistry() {
+        stripes = new Stripe[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    /**
+     * Creates a game with a fresh ID and stores it.
+     * @param factory creates the game for the ID it is given; it is called outside of any lock
+     * @return the ID of the stored game
+     * @throws IllegalStateException if the ID space has run out
+     */
+    int add(IntFunction<V> factory) {
+        while (true) {
+            int startEpoch = epoch;
+            int id = nextId.getAndIncrement();
+            if (id < 0) {
+                throw new IllegalStateException("No instance IDs left");
+            }
+
+            V value = factory.apply(id);
+            Stripe<V> stripe = stripeFor(id);
+            synchronized (stripe) {
+                if (startEpoch == epoch) {
+                    stripe.put(id, value);
+                    return id;
+                }
+            }
+            // the registry was cleared while the game was being created; start over with a new ID
+        }
+    }
+
+    /**
+     * Creates games for a contiguous range of fresh IDs and stores them. The range is claimed in one
+     * step and the games are created in parallel; each stripe is then locked once for all of its games.
+     * @param count the number of games, at least 1
+     * @param factory creates the game for the ID it is given; it is called outside of any lock, from
+     *                several threads at once
+     * @return the first ID of the range; the IDs are first to first + count - 1
+     * @throws IllegalStateException if the ID space has run out
+     */
+    int addAll(int count, IntFunction<V> factory) {
+        return addAll(count, factory, first -> { });
+    }
+
+    /**
+     * Like addAll(int, IntFunction), but tells claimed about the range before any of its games is created.
+     * @param claimed gets the first ID of every range claimed; if the registry is cleared meanwhile the
+     *                range is dropped and another one is claimed
+     */
+    @SuppressWarnings("unchecked")
+    int addAll(int count, IntFunction<V> factory, IntConsumer claimed) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        while (true) {
+            int startEpoch = epoch;
+            int first = claim(count);
+            claimed.accept(first);
+
+            Object[] values = new Object[count];
+            IntStream.range(0, count).parallel().forEach(i -> values[i] = factory.apply(first + i));
+
+            // sort the games by stripe, so each stripe is visited once
+            int[] stripeStart = new int[STRIPE_COUNT + 1];
+            for (int i = 0; i < count; i++) {
+                stripeStart[stripeIndex(first + i) + 1]++;
+            }
+            for (int s = 0; s < STRIPE_COUNT; s++) {
+                stripeStart[s + 1] += stripeStart[s];
+            }
+            int[] next = stripeStart.clone();
+            int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[next[stripeIndex(first + i)]++] = i;
+            }
+
+            boolean cleared = false;
+            for (int s = 0; s < STRIPE_COUNT && !cleared; s++) {
+                synchronized (stripes[s]) {
+                    cleared = startEpoch != epoch;
+                    for (int k = stripeStart[s]; k < stripeStart[s + 1] && !cleared; k++) {
+                        stripes[s].put(first + order[k], (V) values[order[k]]);
+                    }
+                }
+            }
+            if (!cleared) {
+                return first;
+            }
+            // cleared while storing; whatever was stored before the clear is gone with it, so start over
+        }
+    }
+
+    /**
+     * Claims count consecutive IDs without ever letting the counter wrap around.
+     */
+    private int claim(int count) {
+        while (true) {
+            int first = nextId.get();
+            if (first < 0 || first > Integer.MAX_VALUE - count) {
+                throw new IllegalStateException("No instance IDs left");
+            }
+            if (nextId.compareAndSet(first, first + count)) {
+                return first;
+            }
+        }
+    }
+
+    V get(int id) {
+        Stripe<V> stripe = stripeFor(id);
+        synchronized (stripe) {
+            return stripe.get(id);
+        }
+    }
+
+    V remove(int id) {
+        Stripe<V> stripe = stripeFor(id);
+        synchronized (stripe) {
+            return stripe.remove(id);
+        }
+    }
+
+    /**
+     * Stores a game under an ID that was handed out before, e.g. by an earlier run of the server, and
+     * makes sure that ID is never handed out again.
+     * @param id the ID of the game
+     * @param value the game
+     */
+    void restore(int id, V value) {
+        raiseNextId(id + 1);
+        Stripe<V> stripe = stripeFor(id);
+        synchronized (stripe) {
+            stripe.put(id, value);
+        }
+    }
+
+    /**
+     * Makes sure no ID below nextId is handed out again.
+     * @param nextId the lowest ID that may still be handed out
+     */
+    void raiseNextId(int nextId) {
+        this.nextId.accumulateAndGet(nextId, Math::max);
+    }
+
+    /**
+     * @return the ID the next game will get
+     */
+    int getNextId() {
+        return nextId.get();
+    }
+
+    /**
+     * Calls action for every stored game. Each stripe is copied under its lock and action runs outside
+     * of any lock, so it may take its time; games added or removed meanwhile may or may not be seen.
+     * @param action gets each game and its ID
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(ObjIntConsumer<V> action) {
+        for (Stripe<V> stripe : stripes) {
+            int[] keys;
+            Object[] values;
+            synchronized (stripe) {
+                keys = stripe.keys.clone();
+                values = stripe.values.clone();
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) {
+                    action.accept((V) values[i], keys[i]);
+                }
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes every game and starts handing out IDs from zero again.
+     */
+    void clear() {
+        clear(0);
+    }
+
+    private void clear(int stripe) {
+        // take every stripe lock, in order, so no game can be stored while the IDs are reset
+        if (stripe < STRIPE_COUNT) {
+            synchronized (stripes[stripe]) {
+                clear(stripe + 1);
+            }
+            return;
+        }
+        for (Stripe<V> s : stripes) {
+            s.clear();
+        }
+        nextId.set(0);
+        epoch++;
+    }
+
+    private Stripe<V> stripeFor(int id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    private static int stripeIndex(int id) {
+        return mix(id) & (STRIPE_COUNT - 1);
+    }
+
+    /**
+     * Spread sequential IDs over stripes and table slots.
+     */
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * One open-addressing table with linear probing. Callers hold the stripe's lock.
+     */
+    private static final class Stripe<V> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private int[] keys = new int[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        V get(int key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return (V) values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(int key, V value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(int key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) {
+                return null;
+            }
+
+            V removed = (V) values[i];
+            values[i] = null;
+            size--;
+
+            // shift the rest of the probe run back so lookups never stop at the hole
+            int hole = i;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean reachable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (reachable) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    values[j] = null;
+                    hole = j;
+                }
+            }
+            return removed;
+        }
+
+        void clear() {
+            keys = new int[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[capacity];
+            values = new Object[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], (V) oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(int key, int mask) {
+            // the stripe was picked with the low bits, so probe with the high ones
+            return (mix(key) >>> 5) & mask;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package student.server;
+
+import student.adventure.Adventure;
+import student.adventure.CommandTable;
+import student.adventure.CommandType;
+import student.adventure.RoomHistory;
+import student.adventure.World;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * One game being played through the server, together with the last command issued to it.
+ *
+ * Every session has its own state and its own lock. Commands and status reads of one game run one at
+ * a time in the order they take the lock, while sessions of different games never wait on each other.
+ *
+ * The status of a game is built once per version and then shared: every command gives the game a new
+ * version and drops the cached status, and reading the status of an unchanged game takes no lock and
+ * allocates nothing.
+ *
+ * If the session has a store, every command is put in its journal before the command returns, numbered
+ * by the session's own sequence, so the game can be rebuilt after a restart.
+ *
+ * A game that sits idle can be spilled to a file by an Evictor: the session stays registered, but lets
+ * go of its Adventure, and reads it back the next time the game is used.
+ */
+class GameSession {
+    /**
+     * Versions are drawn from one sequence for every game, so a version is never repeated, not even by a
+     * game that gets the same ID after a reset. That makes the version safe to use as an ETag.
+     *
+     * The sequence starts at the boot time in milliseconds times 2^20, so versions keep growing across
+     * restarts, and a game read back from the journal under its old ID never gets a version a client saw
+     * before the restart; that would take a process making over a million versions per millisecond.
+     */
+    static final int VERSIONS_PER_MILLI_BITS = 20;
+    private static final AtomicLong versions =
+            new AtomicLong(System.currentTimeMillis() << VERSIONS_PER_MILLI_BITS);
+
+    private final int id;
+    private final int worldNo;        // which world of the store the game is played in
+    private final World world;
+    private final RoomFragments fragments; // the encoded rooms of the world
+    private Adventure adventure;      // null while the game is spilled; use adventure()
+    private final Leaderboard leaderboard;
+    private final GameStore store;    // null if commands are not journaled
+    private CommandType lastCommand;  // null before the first command or if it was not understood
+    private long seq;                 // the number of commands run, counting those before a restart
+    private long version = versions.incrementAndGet();
+    private volatile GameStatus status; // the status of the current version, or null until it is built
+    private volatile long lastUsed = System.nanoTime();
+    private volatile File spill;      // the file the game is spilled to, or null while it is in memory
+    private Evictor evictor;          // the evictor that spilled the game
+
+    GameSession(int id, Adventure adventure, Leaderboard leaderboard) {
+        this(id, 0, adventure, leaderboard, null);
+    }
+
+    /**
+     * @param id the instance ID
+     * @param worldNo the number the store knows the game's world by
+     * @param adventure the game
+     * @param leaderboard where the scores of won games go
+     * @param store the journal commands are put in, or null for none
+     */
+    GameSession(int id, int worldNo, Adventure adventure, Leaderboard leaderboard, GameStore store) {
+        this.id = id;
+        this.worldNo = worldNo;
+        this.world = adventure.getWorld();
+        this.fragments = RoomFragments.of(world);
+        this.adventure = adventure;
+        this.leaderboard = leaderboard;
+        this.store = store;
+    }
+
+    /**
+     * Runs one command on this game. A command that wins the game puts the player's score on the
+     * leaderboard.
+     * @param command the command, e.g. "go" "East", and the name of the player who sent it
+     * @return the result of the command
+     * @throws UncheckedIOException if the command ran but could not be journaled
+     */
+    synchronized String execute(Command command) {
+        lastUsed = System.nanoTime();
+        String result = apply(command);
+        if (store != null) {
+            journal(seq - 1, 1, new CommandType[] {lastCommand},
+                    new String[] {CommandTable.normalize(command.getCommandValue())});
+        }
+        return result;
+    }
+
+    /**
+     * Runs one command without journaling it.
+     */
+    private String apply(Command command) {
+        Adventure adventure = adventure();
+        lastCommand = CommandTable.lookup(command.getCommandName());
+        String result;
+        try {
+            result = adventure.execute(command.getCommandName(), command.getCommandValue());
+        } finally {
+            seq++;
+            version = versions.incrementAndGet();
+            status = null;
+        }
+
+        String player = command.getPlayerName();
+        if (Adventure.isWin(result) && player != null && !player.trim().isEmpty()) {
+            // the first visit is the starting room, not a move
+            long moves = adventure.getRoomHistory().getVisitCount() - 1;
+            leaderboard.record(player.trim(), Leaderboard.score(moves));
+        }
+        return result;
+    }
+
+    /**
+     * Runs commands on this game in order, without commands from other requests in between, and gets
+     * the state of the game right after the last one.
+     * @param commands the commands to run
+     * @param stopOn which kind of result stops the batch; the command that stops it is still reported
+     * @return the result of every command that ran and the final state
+     * @throws UncheckedIOException if the commands ran but could not be journaled
+     */
+    synchronized BatchResult executeBatch(List<Command> commands, BatchResult.StopOn stopOn) {
+        lastUsed = System.nanoTime();
+        List<BatchResult.CommandResult> results = new ArrayList<>(commands.size());
+        long firstSeq = seq;
+        CommandType[] types = new CommandType[commands.size()];
+        String[] values = new String[commands.size()];
+        try {
+            runBatch(commands, stopOn, results, types, values);
+        } finally {
+            // the whole batch is one journal record, so it costs one disk sync
+            if (store != null && seq > firstSeq) {
+                journal(firstSeq, (int) (seq - firstSeq), types, values);
+            }
+        }
+        return new BatchResult(id, commands.size(), results, getStatus());
+    }
+
+    private void runBatch(List<Command> commands, BatchResult.StopOn stopOn,
+                          List<BatchResult.CommandResult> results, CommandType[] types, String[] values) {
+        for (int i = 0; i < commands.size(); i++) {
+            Command command = commands.get(i);
+            String message = apply(command);
+            types[i] = lastCommand;
+            values[i] = CommandTable.normalize(command.getCommandValue());
+            boolean failed = Adventure.isFailure(message);
+            results.add(new BatchResult.CommandResult(
+                    command.getCommandName(), command.getCommandValue(), message, failed));
+
+            if ((stopOn == BatchResult.StopOn.FAILURE && failed)
+                    || (stopOn == BatchResult.StopOn.INVALID && Adventure.isNotUnderstood(message))) {
+                break;
+            }
+        }
+    }
+
+    private void journal(long firstSeq, int count, CommandType[] types, String[] values) {
+        try {
+            store.commands(id, firstSeq, count, types, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal a command of game " + id, e);
+        }
+    }
+
+    /**
+     * Runs a command from the journal again while the game is being rebuilt. Commands the game has
+     * already seen are skipped, and nothing goes to the leaderboard or back into the journal.
+     * @param commandSeq the number the command had in the journal; commands before it ran already
+     * @param type the command, or null if it was not understood
+     * @param value the normalized value of the command
+     */
+    synchronized void replay(long commandSeq, CommandType type, String value) {
+        if (commandSeq < seq) {
+            return; // in the snapshot already
+        }
+        lastCommand = type;
+        if (type != null && (!type.needsValue() || !value.isEmpty())) {
+            adventure().execute(type, value);
+        }
+        seq = commandSeq + 1;
+        version = versions.incrementAndGet();
+        status = null;
+    }
+
+    /**
+     * Writes the state of this game compactly; the size does not grow with the number of commands run.
+     * @param out where to write the state
+     * @throws IOException if the state can't be written
+     */
+    synchronized void writeState(DataOutput out) throws IOException {
+        if (adventure == null) {
+            out.write(Files.readAllBytes(spill.toPath())); // spilled in this very encoding
+            return;
+        }
+        out.writeInt(worldNo);
+        out.writeLong(seq);
+        out.writeByte(lastCommand == null ? -1 : lastCommand.ordinal());
+        adventure.writeState(out);
+    }
+
+    /**
+     * Reads a game written by writeState().
+     * @param in where to read the state from
+     * @param worlds gets a world by its number
+     * @param leaderboard where the scores of won games go
+     * @param store the journal later commands are put in, or null for none
+     * @return the game
+     * @throws IOException if the state can't be read
+     */
+    static GameSession readState(DataInput in, IntFunction<World> worlds, Leaderboard leaderboard,
+                                 GameStore store) throws IOException {
+        int worldNo = in.readInt();
+        long seq = in.readLong();
+        CommandType lastCommand = commandType(in.readByte());
+        World world = worlds.apply(worldNo);
+        if (world == null) {
+            throw new IOException("Saved game refers to unknown world " + worldNo);
+        }
+        Adventure adventure = Adventure.readState(world, in);
+
+        GameSession session = new GameSession(adventure.getInstanceID(), worldNo, adventure, leaderboard, store);
+        session.seq = seq;
+        session.lastCommand = lastCommand;
+        return session;
+    }
+
+    /**
+     * @param code the ordinal of a command, or -1 for a command that was not understood
+     * @return the command, or null
+     */
+    static CommandType commandType(int code) {
+        return code < 0 ? null : CommandType.values()[code];
+    }
+
+    int getWorldNo() {
+        return worldNo;
+    }
+
+    /**
+     * Spills this game to a file and lets go of it, unless it was used after the evictor looked at it.
+     * @param usedAt the time of last use the evictor saw, from getLastUsed()
+     * @param file the file to write; it must not be shared with any other session
+     * @param evictor told when the game is read back
+     * @return the number of bytes written, or -1 if the game stays in memory
+     * @throws IOException if the file can't be written, in which case the game stays in memory
+     */
+    synchronized long evict(long usedAt, File file, Evictor evictor) throws IOException {
+        if (adventure == null || lastUsed != usedAt) {
+            return -1;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        writeState(new DataOutputStream(bytes));
+        Files.write(file.toPath(), bytes.toByteArray());
+
+        this.evictor = evictor;
+        spill = file;
+        adventure = null;
+        status = null;
+        return bytes.size();
+    }
+
+    /**
+     * Gets the game, reading it back first if it was spilled. Callers hold the session's lock.
+     * @throws UncheckedIOException if a spilled game can't be read back
+     */
+    private Adventure adventure() {
+        if (adventure == null) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spill)))) {
+                in.readInt();  // the world, sequence and last command were never dropped
+                in.readLong();
+                in.readByte();
+                adventure = Adventure.readState(world, in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read back game " + id, e);
+            }
+            evictor.rehydrated(spill);
+            spill = null;
+            evictor = null;
+        }
+        return adventure;
+    }
+
+    /**
+     * Deletes the file of a spilled game. Called once the session is removed for good.
+     */
+    synchronized void discard() {
+        if (spill != null) {
+            evictor.discarded(spill);
+            spill = null;
+            evictor = null;
+        }
+    }
+
+    /**
+     * @return the System.nanoTime() of the last command or read of this game
+     */
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    boolean isSpilled() {
+        return spill != null;
+    }
+
+    /**
+     * Gets a page of the rooms visited in this game.
+     * @param fromVisit the number of the first visit wanted, counting from 0
+     * @param limit the most rooms to return
+     * @return the page
+     */
+    synchronized HistoryPage getHistory(long fromVisit, int limit) {
+        lastUsed = System.nanoTime();
+        Adventure adventure = adventure();
+        RoomHistory history = adventure.getRoomHistory();
+        long from = Math.max(fromVisit, history.getFirstVisit());
+        return new HistoryPage(id, history.getVisitCount(), from, adventure.getHistory(from, limit));
+    }
+
+    /**
+     * Gets the current state of this game, building it if a command has run since it was last built.
+     * @return the current state of the game
+     */
+    GameStatus getStatus() {
+        lastUsed = System.nanoTime();
+        GameStatus current = status;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (status == null) {
+                status = buildStatus();
+            }
+            return status;
+        }
+    }
+
+    /**
+     * Builds the state of this game. The lists in the result are copies, so the status stays the same
+     * while later commands run.
+     */
+    private GameStatus buildStatus() {
+        Adventure adventure = adventure();
+        boolean error = false;
+        String message;
+
+        HashMap<String, List<String>> commandOptions = new HashMap<>();
+        List<String> history = new ArrayList<>();
+        String videoUrl = adventure.getWorld().getVideoUrl();
+
+        RoomFragments.Room room = fragments.room(world, adventure.getCurrentRoomId());
+        GameStatus.Encoded encoded = room.described;
+        try {
+            if (lastCommand == CommandType.HISTORY) {
+                message = "you've visited: " + adventure.getHistory();
+                encoded = room.other;
+            } else {
+                message = adventure.getCurrentRoomDescription();
+
+            }
+        } catch (Exception e) {
+            error = true;
+            message = "";
+            encoded = room.other;
+        }
+
+        history.add("Visited Locations");
+
+        commandOptions.put("go", adventure.getDirections());
+        commandOptions.put("history", Collections.unmodifiableList(history));
+        commandOptions.put("take", Collections.unmodifiableList(new ArrayList<>(adventure.getCurrentRoomItems())));
+        commandOptions.put("drop", Collections.unmodifiableList(new ArrayList<>(adventure.getInventory())));
+
+        String imageUrl = adventure.getCurrentRoomImage();
+        AdventureState state = new AdventureState();
+
+        if (adventure.getCurrentRoomId() == adventure.getWorld().getEndingRoomId()) {
+            videoUrl = null;
+            commandOptions = new HashMap<>();
+        }
+
+        return new GameStatus(
+                error,
+                id,
+                message,
+                imageUrl,
+                videoUrl,
+                state,
+                commandOptions,
+                version,
+                encoded);
+    }
+}
@@ -1,42 +1,54 @@
 package student.server;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 /**
  * An object representing the current state of a game instance.
+ *
+ * A status never changes once it is built, so one status can be shared by every request that asks for
+ * the same version of a game.
+ *
+ * A status built by a game session also carries the parts that only depend on the room already encoded
+ * as JSON, see RoomFragments, and GameStatusSerializer writes those as they are.
  */
+@JsonSerialize(using = GameStatusSerializer.class)
 public class GameStatus {
     /**
      * Whether or not this response is an error state.
      * Note: this should not be `true` for most cases. This should only be `true` if an exception was
      * thrown by the game engine.
      */
-    private boolean error;
+    private final boolean error;
     /**
      * The instance ID associated with this GameStatus.
      * This field is required, and cannot be null.
      */
-    private int id;
+    private final int id;
     /**
      * A text message to display to the user.
      * This field is required, and cannot be null.
      */
-    private String message;
+    private final String message;
     /**
      * A URL of an image to display to the user.
      */
-    private String imageUrl;
+    private final String imageUrl;
     /**
      * A YouTube video link to play for the user.
      */
-    private String videoUrl;
+    private final String videoUrl;
     /**
      * An object (that you may modify) that contains values represented by the game's state.
      * E.g.: life total, # items in inventory, etc.
      * This field is required, and cannot be null. However, the AdventureState class can be empty if you don't need it.
      */
-    private AdventureState state;
+    private final AdventureState state;
     /**
      * An mapping of commands to possible arguments for those commands. This will be used to create buttons on the
      * frontend, so it should be full of the possible options for the user.
@@ -45,16 +57,38 @@ public class GameStatus {
      *       "answer" -> ["A", "B", "C", "D"] (for a trivia-like custom feature)
      * This field is required, and cannot be null.
      */
-    private Map<String, List<String>> commandOptions;
+    private final Map<String, List<String>> commandOptions;
+    /**
+     * The version of the game this status was built from. It is not sent as part of the JSON; the server
+     * uses it as the ETag of the status.
+     */
+    private final long version;
+    /**
+     * The fields that are already encoded, or null to encode every field.
+     */
+    private final Encoded encoded;
 
     public GameStatus(boolean error, int id, String message, String imageUrl, String videoUrl, AdventureState state, Map<String, List<String>> commandOptions) {
+        this(error, id, message, imageUrl, videoUrl, state, commandOptions, 0);
+    }
+
+    public GameStatus(boolean error, int id, String message, String imageUrl, String videoUrl, AdventureState state, Map<String, List<String>> commandOptions, long version) {
+        this(error, id, message, imageUrl, videoUrl, state, commandOptions, version, null);
+    }
+
+    /**
+     * @param encoded the fields that are already encoded; each must be the encoding of the matching argument
+     */
+    GameStatus(boolean error, int id, String message, String imageUrl, String videoUrl, AdventureState state, Map<String, List<String>> commandOptions, long version, Encoded encoded) {
         this.error = error;
         this.id = id;
         this.message = message;
         this.imageUrl = imageUrl;
         this.videoUrl = videoUrl;
         this.state = state;
-        this.commandOptions = commandOptions;
+        this.commandOptions = Collections.unmodifiableMap(commandOptions);
+        this.version = version;
+        this.encoded = encoded;
     }
 
     public boolean isError() {
@@ -84,4 +118,32 @@ public class GameStatus {
     public Map<String, List<String>> getCommandOptions() {
         return commandOptions;
     }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    Encoded getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Fields of a status encoded as JSON strings ahead of time. A null field is encoded when written.
+     */
+    static final class Encoded {
+        final SerializableString message;
+        final SerializableString imageUrl;
+        final SerializableString videoUrl;
+        final SerializableString[] go;  // the "go" command options
+
+        Encoded(SerializableString message, SerializableString imageUrl, SerializableString videoUrl,
+                SerializableString[] go) {
+            this.message = message;
+            this.imageUrl = imageUrl;
+            this.videoUrl = videoUrl;
+            this.go = go;
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package student.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a GameStatus with the same fields as Jackson would from its getters, but copies the fields a
+ * game session encoded ahead of time instead of encoding them again.
+ */
+class GameStatusSerializer extends StdSerializer<GameStatus> {
+    private static final SerializableString ERROR = new SerializedString("error");
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString MESSAGE = new SerializedString("message");
+    private static final SerializableString IMAGE_URL = new SerializedString("imageUrl");
+    private static final SerializableString VIDEO_URL = new SerializedString("videoUrl");
+    private static final SerializableString COMMAND_OPTIONS = new SerializedString("commandOptions");
+
+    GameStatusSerializer() {
+        super(GameStatus.class);
+    }
+
+    @Override
+    public void serialize(GameStatus status, JsonGenerator json, SerializerProvider provider) throws IOException {
+        GameStatus.Encoded encoded = status.getEncoded();
+        json.writeStartObject(status);
+        json.writeFieldName(ERROR);
+        json.writeBoolean(status.isError());
+        json.writeFieldName(ID);
+        json.writeNumber(status.getId());
+        json.writeFieldName(MESSAGE);
+        writeString(json, status.getMessage(), encoded == null ? null : encoded.message);
+        json.writeFieldName(IMAGE_URL);
+        writeString(json, status.getImageUrl(), encoded == null ? null : encoded.imageUrl);
+        json.writeFieldName(VIDEO_URL);
+        writeString(json, status.getVideoUrl(), encoded == null ? null : encoded.videoUrl);
+        // the state may get fields of its own, so it is written as any bean
+        provider.defaultSerializeField("state", status.getState(), json);
+
+        json.writeFieldName(COMMAND_OPTIONS);
+        json.writeStartObject();
+        for (Map.Entry<String, List<String>> option : status.getCommandOptions().entrySet()) {
+            json.writeFieldName(option.getKey());
+            if (encoded != null && encoded.go != null && option.getKey().equals("go")) {
+                json.writeStartArray();
+                for (SerializableString direction : encoded.go) {
+                    json.writeString(direction);
+                }
+                json.writeEndArray();
+            } else {
+                writeStrings(json, option.getValue());
+            }
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator json, String value, SerializableString encoded) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else if (encoded != null) {
+            json.writeString(encoded);
+        } else {
+            json.writeString(value);
+        }
+    }
+
+    private static void writeStrings(JsonGenerator json, List<String> values) throws IOException {
+        if (values == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartArray();
+        for (String value : values) {
+            if (value == null) {
+                json.writeNull();
+            } else {
+                json.writeString(value);
+            }
+        }
+        json.writeEndArray();
+    }
+}
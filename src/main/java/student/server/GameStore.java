@@ -0,0 +1,672 @@
+package student.server;
+
+import student.adventure.Adventure;
+import student.adventure.CommandType;
+import student.adventure.Json;
+import student.adventure.Layout;
+import student.adventure.World;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the games of a service across restarts, as a journal of everything that changed them plus
+ * snapshots of every game.
+ *
+ * A journal record is small: a command is the instance ID, its number in the game, a one-byte command
+ * code and the normalized value. Every snapshotEvery records a snapshot is written on a background
+ * thread: the journal moves on to a new file first, then the compact state of every game is written,
+ * and then the files the snapshot replaces are deleted. The journal never holds more than about
+ * snapshotEvery records, so starting up costs one snapshot plus at most that many records, however
+ * long the games have been played.
+ *
+ * On startup the records are read in order and sorted by game, then every game is rebuilt on its own,
+ * all of them in parallel.
+ */
+class GameStore implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(GameStore.class.getName());
+
+    private static final int SNAPSHOT_MAGIC = 0x41445653; // "ADVS"
+    private static final int SNAPSHOT_FORMAT = 1;
+
+    // the kinds of journal records
+    private static final byte CREATE = 1;       // id, world
+    private static final byte CREATE_RANGE = 2; // first id, count, world
+    private static final byte COMMANDS = 3;     // id, number of the first command, count, (code, value)...
+    private static final byte DESTROY = 4;      // id
+    private static final byte RESET = 5;        //
+    private static final byte LAYOUT = 6;       // world, layout as JSON
+
+    private final File dir;
+    private final int snapshotEvery;
+    private final int historyCapacity;  // of new games; rebuilt games keep the capacity they were saved with
+    private final Supplier<World> defaultWorld;
+    private final Leaderboard leaderboard;
+    private final GameRegistry<GameSession> games;
+
+    /**
+     * Worlds of layouts sent by clients, by number; world 0 is the default map and is not journaled. A
+     * layout is kept while any game is played in it: liveGames counts the games of each, and a layout is
+     * dropped when its last game is destroyed.
+     */
+    private final Map<Integer, World> worlds = new ConcurrentHashMap<>();
+    private final Map<Integer, byte[]> layouts = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> liveGames = new ConcurrentHashMap<>();
+    private final AtomicInteger nextWorldNo = new AtomicInteger(1);
+
+    /**
+     * Creating a game holds the read lock from journaling it to storing it, and moving to a new journal
+     * file holds the write lock. So a game whose record is in a file a snapshot replaces is always in
+     * that snapshot.
+     */
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final AtomicLong sinceSnapshot = new AtomicLong();
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final ExecutorService snapshotter;
+    private final Journal journal;
+    private int segment; // the number of the journal file being written; guarded by the write lock
+
+    /**
+     * Opens the store in a directory, rebuilding the games it holds into the registry.
+     * @param dir the directory of the journal and snapshots; created if needed
+     * @param snapshotEvery the number of journal records after which a snapshot is taken
+     * @param historyCapacity the number of room visits a new game keeps
+     * @param defaultWorld gets world 0, the default map
+     * @param leaderboard where the scores of rebuilt games go once they are played again
+     * @param games the registry the games are rebuilt into; normally empty
+     * @throws IOException if the directory can't be read or the journal can't be opened
+     */
+    GameStore(File dir, int snapshotEvery, int historyCapacity, Supplier<World> defaultWorld,
+              Leaderboard leaderboard, GameRegistry<GameSession> games) throws IOException {
+        if (snapshotEvery < 1 || historyCapacity < 1) {
+            throw new IllegalArgumentException("snapshotEvery and historyCapacity must be positive");
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create journal directory " + dir);
+        }
+        this.dir = dir;
+        this.snapshotEvery = snapshotEvery;
+        this.historyCapacity = historyCapacity;
+        this.defaultWorld = defaultWorld;
+        this.leaderboard = leaderboard;
+        this.games = games;
+
+        segment = recover() + 1;
+        journal = new Journal(segmentFile(segment));
+        snapshotter = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // records replayed on startup count too, so restarting often can't make the journal grow
+        if (sinceSnapshot.get() >= snapshotEvery && snapshotting.compareAndSet(false, true)) {
+            snapshotter.execute(this::snapshot);
+        }
+    }
+
+    /**
+     * Gets a world by its number.
+     * @param worldNo 0 for the default map, or a number given by addLayout()
+     * @return the world, or null if there is none with that number
+     */
+    World world(int worldNo) {
+        return worldNo == 0 ? defaultWorld.get() : worlds.get(worldNo);
+    }
+
+    /**
+     * Creates a game, journals it and stores it.
+     * @param worldNo the world the game is played in
+     * @return the ID of the game
+     * @throws IOException if the game can't be journaled
+     * @throws IllegalStateException if the ID space has run out
+     */
+    int newGame(int worldNo) throws IOException {
+        World world = world(worldNo);
+        snapshotLock.readLock().lock();
+        hold(worldNo, 1);
+        try {
+            // journaled before it is stored, so no command of the game can come before it in the journal
+            return games.add(id -> {
+                append(record(CREATE, id, worldNo));
+                return new GameSession(id, worldNo, new Adventure(world, id, historyCapacity), leaderboard, this);
+            });
+        } catch (UncheckedIOException e) {
+            release(worldNo, 1);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            release(worldNo, 1);
+            throw e;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates games with consecutive IDs, journals them as one record and stores them.
+     * @param count the number of games
+     * @param worldNo the world the games are played in
+     * @return the first ID
+     * @throws IOException if the games can't be journaled
+     * @throws IllegalStateException if the ID space has run out
+     */
+    int newGames(int count, int worldNo) throws IOException {
+        World world = world(worldNo);
+        snapshotLock.readLock().lock();
+        hold(worldNo, count);
+        try {
+            return games.addAll(count,
+                    id -> new GameSession(id, worldNo, new Adventure(world, id, historyCapacity), leaderboard, this),
+                    first -> append(record(CREATE_RANGE, first, count, worldNo)));
+        } catch (UncheckedIOException e) {
+            release(worldNo, count);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            release(worldNo, count);
+            throw e;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Journals a layout sent by a client, gives its world a number and creates games in it. The layout is
+     * kept until its last game is destroyed.
+     * @param count the number of games
+     * @param layout a valid layout
+     * @param world the layout, compiled
+     * @return the first ID
+     * @throws IOException if the layout or the games can't be journaled
+     * @throws IllegalStateException if the ID space has run out
+     */
+    int newGames(int count, Layout layout, World world) throws IOException {
+        byte[] json = Json.writerFor(Layout.class).writeValueAsBytes(layout);
+        int worldNo = nextWorldNo.getAndIncrement();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length + 16);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(LAYOUT);
+        record.writeInt(worldNo);
+        record.writeInt(json.length);
+        record.write(json);
+
+        // the layout and its games are journaled under one lock, so no snapshot comes between them: one
+        // that did would find a layout with no games yet and leave it out
+        snapshotLock.readLock().lock();
+        try {
+            append(bytes.toByteArray());
+            layouts.put(worldNo, json);
+            worlds.put(worldNo, world);
+            hold(worldNo, 0);
+            // if no game could be created, releasing them drops the layout again
+            return newGames(count, worldNo);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts games played in a world of a layout, so the layout is kept.
+     */
+    private void hold(int worldNo, int count) {
+        if (worldNo != 0) {
+            liveGames.merge(worldNo, count, Integer::sum);
+        }
+    }
+
+    /**
+     * Counts games that are gone from a world of a layout, and drops the layout when none are left.
+     */
+    private void release(int worldNo, int count) {
+        if (worldNo == 0) {
+            return;
+        }
+        if (liveGames.computeIfPresent(worldNo, (key, live) -> live > count ? live - count : null) == null) {
+            layouts.remove(worldNo);
+            worlds.remove(worldNo);
+        }
+    }
+
+    /**
+     * Journals commands that ran on a game. Called by the game, holding its lock, so the commands of
+     * one game are journaled in the order they ran.
+     * @param id the instance ID
+     * @param firstSeq the number of the first command in the game
+     * @param count the number of commands
+     * @param types the commands, null for ones that were not understood
+     * @param values the normalized values of the commands
+     * @throws IOException if the commands can't be journaled
+     */
+    void commands(int id, long firstSeq, int count, CommandType[] types, String[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + 16 * count);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(COMMANDS);
+        record.writeInt(id);
+        record.writeLong(firstSeq);
+        record.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            record.writeByte(types[i] == null ? -1 : types[i].ordinal());
+            record.writeUTF(values[i]);
+        }
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * Journals that a game was destroyed, and drops the layout it was played in if it was the layout's
+     * last game. Called after it was removed from the registry.
+     * @param id the instance ID
+     * @param worldNo the world the game was played in
+     * @throws IOException if the record can't be journaled
+     */
+    void destroyed(int id, int worldNo) throws IOException {
+        try {
+            append(record(DESTROY, id));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            release(worldNo, 1);
+        }
+    }
+
+    /**
+     * Journals a reset and clears the games, with no snapshot or new game in between.
+     * @param clear removes every game
+     * @throws IOException if the reset can't be journaled, in which case nothing is cleared
+     */
+    void reset(Runnable clear) throws IOException {
+        snapshotLock.writeLock().lock();
+        try {
+            append(record(RESET));
+            clear.run();
+            liveGames.clear();
+            layouts.clear();
+            worlds.clear();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    private static byte[] record(byte type, int... values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 + 4 * values.length);
+        DataOutputStream record = new DataOutputStream(bytes);
+        try {
+            record.writeByte(type);
+            for (int value : values) {
+                record.writeInt(value);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // never happens writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Appends a record, waiting until it is on disk, and starts a snapshot every snapshotEvery records.
+     * @throws UncheckedIOException if the record can't be written, so it can be thrown from a factory
+     */
+    private void append(byte[] record) {
+        try {
+            journal.append(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (sinceSnapshot.incrementAndGet() >= snapshotEvery && snapshotting.compareAndSet(false, true)) {
+            snapshotter.execute(this::snapshot);
+        }
+    }
+
+    /**
+     * Moves the journal to a new file, writes every game to a snapshot that replaces the older files,
+     * then deletes them. Runs on the snapshot thread while games go on being played.
+     */
+    private void snapshot() {
+        try {
+            int number;
+            snapshotLock.writeLock().lock();
+            try {
+                number = segment + 1;
+                journal.rotate(segmentFile(number));
+                segment = number;
+                sinceSnapshot.set(0);
+            } finally {
+                snapshotLock.writeLock().unlock();
+            }
+
+            long start = System.nanoTime();
+            File temporary = new File(dir, "snapshot-" + number + ".tmp");
+            int count = writeSnapshot(temporary);
+            Files.move(temporary.toPath(), snapshotFile(number).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            deleteBefore(number);
+            logger.info("Wrote a snapshot of " + count + " games in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IOException | RuntimeException e) {
+            // the journal files stay, so nothing is lost; the next snapshot tries again
+            logger.log(Level.WARNING, "Could not write a snapshot of the games", e);
+        } finally {
+            snapshotting.set(false);
+        }
+    }
+
+    /**
+     * Writes the layouts games are played in and every game. A game changed while the snapshot is written may be saved with
+     * or without the change; its commands carry numbers, so replaying skips what the snapshot has.
+     */
+    private int writeSnapshot(File file) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeInt(games.getNextId());
+            out.writeInt(nextWorldNo.get());
+            out.writeInt(layouts.size());
+            for (Map.Entry<Integer, byte[]> layout : layouts.entrySet()) {
+                out.writeInt(layout.getKey());
+                out.writeInt(layout.getValue().length);
+                out.write(layout.getValue());
+            }
+
+            ByteArrayOutputStream state = new ByteArrayOutputStream(256);
+            DataOutputStream stateOut = new DataOutputStream(state);
+            int[] count = {0};
+            try {
+                games.forEach((session, id) -> {
+                    try {
+                        state.reset();
+                        session.writeState(stateOut);
+                        out.writeInt(id);
+                        out.writeInt(state.size());
+                        state.writeTo(out);
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeInt(-1);
+
+            out.flush();
+            stream.getFD().sync();
+            return count[0];
+        }
+    }
+
+    private void deleteBefore(int number) {
+        for (File file : files()) {
+            int fileNumber = number(file.getName());
+            if (fileNumber >= 0 && fileNumber < number && !file.delete()) {
+                logger.warning("Could not delete " + file);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the games from the last snapshot and the journal files written since.
+     * @return the number of the last file read, or 0 if there was none
+     */
+    private int recover() throws IOException {
+        long start = System.nanoTime();
+        int snapshot = -1;
+        int last = 0;
+        for (File file : files()) {
+            String name = file.getName();
+            int number = number(name);
+            if (name.endsWith(".bin")) {
+                snapshot = Math.max(snapshot, number);
+            }
+            if (number >= 0) {
+                last = Math.max(last, number);
+            }
+        }
+
+        Recovery recovery = new Recovery();
+        if (snapshot >= 0) {
+            readSnapshot(snapshotFile(snapshot), recovery);
+        }
+        long records = 0;
+        for (int number = Math.max(snapshot, 0); number <= last; number++) {
+            File file = segmentFile(number);
+            if (file.exists()) {
+                records += Journal.read(file, recovery::apply);
+            }
+        }
+
+        // every game is rebuilt on its own, so they can all be rebuilt at once
+        try {
+            recovery.games.values().parallelStream().forEach(Replay::run);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (Replay replay : recovery.games.values()) {
+            games.restore(replay.id, replay.session);
+            hold(replay.session.getWorldNo(), 1);
+        }
+        // layouts whose games were all destroyed before the restart are not needed any more
+        layouts.keySet().retainAll(liveGames.keySet());
+        worlds.keySet().retainAll(liveGames.keySet());
+        games.raiseNextId(recovery.nextId);
+        sinceSnapshot.set(records);
+
+        if (snapshot >= 0 || records > 0) {
+            logger.info("Restored " + recovery.games.size() + " games from "
+                    + (snapshot >= 0 ? "snapshot " + snapshot + " and " : "") + records + " journal records in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+        return last;
+    }
+
+    private void readSnapshot(File file, Recovery recovery) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+                throw new IOException(file + " is not a snapshot this version can read");
+            }
+            recovery.nextId = in.readInt();
+            nextWorldNo.set(in.readInt());
+            for (int count = in.readInt(); count > 0; count--) {
+                int worldNo = in.readInt();
+                byte[] json = new byte[in.readInt()];
+                in.readFully(json);
+                putLayout(worldNo, json);
+            }
+
+            for (int id = in.readInt(); id >= 0; id = in.readInt()) {
+                byte[] state = new byte[in.readInt()];
+                in.readFully(state);
+                recovery.games.put(id, new Replay(id, state));
+            }
+        }
+    }
+
+    private void putLayout(int worldNo, byte[] json) throws IOException {
+        layouts.put(worldNo, json);
+        worlds.put(worldNo, World.compile(Json.readerFor(Layout.class).readValue(json)));
+        nextWorldNo.accumulateAndGet(worldNo + 1, Math::max);
+    }
+
+    private File[] files() {
+        File[] files = dir.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    private File segmentFile(int number) {
+        return new File(dir, "journal-" + number + ".log");
+    }
+
+    private File snapshotFile(int number) {
+        return new File(dir, "snapshot-" + number + ".bin");
+    }
+
+    /**
+     * @return the number of a journal or snapshot file, or -1 for any other file
+     */
+    private static int number(String name) {
+        String digits;
+        if (name.startsWith("journal-") && name.endsWith(".log")) {
+            digits = name.substring("journal-".length(), name.length() - ".log".length());
+        } else if (name.startsWith("snapshot-") && (name.endsWith(".bin") || name.endsWith(".tmp"))) {
+            digits = name.substring("snapshot-".length(), name.length() - ".bin".length());
+        } else {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Waits for a snapshot being written and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    /**
+     * What the journal says about the games, read in order: which games exist and the commands of each.
+     */
+    private final class Recovery {
+        final Map<Integer, Replay> games = new HashMap<>();
+        int nextId;
+
+        void apply(byte[] record) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+                switch (in.readByte()) {
+                    case CREATE:
+                        created(in.readInt(), 1, in.readInt());
+                        break;
+                    case CREATE_RANGE:
+                        created(in.readInt(), in.readInt(), in.readInt());
+                        break;
+                    case COMMANDS:
+                        commands(in);
+                        break;
+                    case DESTROY:
+                        games.remove(in.readInt());
+                        break;
+                    case RESET:
+                        games.clear();
+                        nextId = 0;
+                        layouts.clear();
+                        worlds.clear();
+                        break;
+                    case LAYOUT:
+                        int worldNo = in.readInt();
+                        byte[] json = new byte[in.readInt()];
+                        in.readFully(json);
+                        putLayout(worldNo, json);
+                        break;
+                    default:
+                        throw new IOException("Unknown journal record " + record[0]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void created(int first, int count, int worldNo) {
+            for (int id = first; id < first + count; id++) {
+                // a game created while a snapshot was written may be in the snapshot already
+                games.putIfAbsent(id, new Replay(id, worldNo));
+            }
+            nextId = Math.max(nextId, first + count);
+        }
+
+        private void commands(DataInputStream in) throws IOException {
+            Replay replay = games.get(in.readInt());
+            long seq = in.readLong();
+            int count = in.readInt();
+            if (replay == null) {
+                return; // destroyed later on
+            }
+            for (int i = 0; i < count; i++) {
+                replay.types.add(GameSession.commandType(in.readByte()));
+                replay.values.add(in.readUTF());
+                replay.seqs.add(seq + i);
+            }
+        }
+    }
+
+    /**
+     * One game to rebuild: its saved state or the world it was created in, and its later commands.
+     */
+    private final class Replay {
+        final int id;
+        final byte[] state;   // null if the game was created after the snapshot
+        final int worldNo;
+        final List<Long> seqs = new ArrayList<>();
+        final List<CommandType> types = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+        GameSession session;
+
+        Replay(int id, byte[] state) {
+            this.id = id;
+            this.state = state;
+            this.worldNo = -1;
+        }
+
+        Replay(int id, int worldNo) {
+            this.id = id;
+            this.state = null;
+            this.worldNo = worldNo;
+        }
+
+        void run() {
+            try {
+                if (state != null) {
+                    session = GameSession.readState(new DataInputStream(new ByteArrayInputStream(state)),
+                            GameStore.this::world, leaderboard, GameStore.this);
+                } else {
+                    World world = world(worldNo);
+                    if (world == null) {
+                        throw new IOException("Game " + id + " refers to unknown world " + worldNo);
+                    }
+                    session = new GameSession(id, worldNo, new Adventure(world, id, historyCapacity), leaderboard,
+                            GameStore.this);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (int i = 0; i < seqs.size(); i++) {
+                session.replay(seqs.get(i), types.get(i), values.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package student.server;
+
+import java.util.List;
+
+/**
+ * A page of the rooms visited in a game instance.
+ */
+public class HistoryPage {
+    /**
+     * The instance ID associated with this page.
+     */
+    private int id;
+    /**
+     * The number of rooms visited in the game so far, including visits that are no longer kept.
+     */
+    private long visitCount;
+    /**
+     * The number of the first visit on this page. Visits are numbered from 0.
+     */
+    private long fromVisit;
+    /**
+     * The names of the rooms visited, oldest first.
+     */
+    private List<String> rooms;
+
+    public HistoryPage(int id, long visitCount, long fromVisit, List<String> rooms) {
+        this.id = id;
+        this.visitCount = visitCount;
+        this.fromVisit = fromVisit;
+        this.rooms = rooms;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getVisitCount() {
+        return visitCount;
+    }
+
+    public long getFromVisit() {
+        return fromVisit;
+    }
+
+    public List<String> getRooms() {
+        return rooms;
+    }
+}
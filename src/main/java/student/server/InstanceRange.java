@@ -0,0 +1,32 @@
+package student.server;
+
+/**
+ * A contiguous range of game instance IDs, as created by one bulk create.
+ */
+public class InstanceRange {
+    /**
+     * The first ID of the range.
+     */
+    private final int firstId;
+    /**
+     * The number of IDs in the range; the last one is firstId + count - 1.
+     */
+    private final int count;
+
+    public InstanceRange(int firstId, int count) {
+        this.firstId = firstId;
+        this.count = count;
+    }
+
+    public int getFirstId() {
+        return firstId;
+    }
+
+    public int getLastId() {
+        return firstId + count - 1;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
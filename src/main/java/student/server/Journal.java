@@ -0,0 +1,243 @@
+package student.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of records on disk, with group commit.
+ *
+ * Threads that append a record wait until it is on disk, but they do not each pay for a disk sync: a
+ * writer thread takes every record appended since its last write, writes them together and syncs once,
+ * then wakes all of their threads. The busier the log, the more records share one sync.
+ *
+ * Every record is framed with its length and a CRC32, so a record torn by a crash is recognized and
+ * reading stops there.
+ */
+class Journal implements AutoCloseable {
+    private final Object lock = new Object();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream(1 << 16);
+    private final DataOutputStream pendingOut = new DataOutputStream(new ForwardingStream());
+    private final CRC32 crc = new CRC32();
+    private final Thread writer;
+
+    private FileChannel channel;
+    private long appended;      // records appended so far
+    private long durable;       // records synced to disk so far
+    private boolean rotating;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens a new log file. The file must not exist yet.
+     * @param file the file to append to
+     * @throws IOException if the file can't be created
+     */
+    Journal(File file) throws IOException {
+        channel = open(file);
+        writer = new Thread(this::writeRecords, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Appends a record and waits until it is on disk.
+     * @param record the record
+     * @throws IOException if the log can't be written, now or since an earlier failure
+     */
+    void append(byte[] record) throws IOException {
+        synchronized (lock) {
+            try {
+                while (rotating) {
+                    lock.wait();
+                }
+                if (failure != null || closed) {
+                    throw new IOException("Journal is not writable", failure);
+                }
+
+                crc.reset();
+                crc.update(record, 0, record.length);
+                pendingOut.writeInt(record.length);
+                pendingOut.write(record);
+                pendingOut.writeInt((int) crc.getValue());
+                long mine = ++appended;
+                lock.notifyAll();
+
+                while (durable < mine && failure == null) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the journal");
+            }
+            if (failure != null) {
+                throw new IOException("Journal is not writable", failure);
+            }
+        }
+    }
+
+    /**
+     * Moves to a new log file once everything appended so far is on disk. Appends wait meanwhile.
+     * @param file the new file, which must not exist yet
+     * @throws IOException if the new file can't be created
+     */
+    void rotate(File file) throws IOException {
+        synchronized (lock) {
+            rotating = true;
+            try {
+                while (durable < appended && failure == null) {
+                    lock.wait();
+                }
+                if (failure != null) {
+                    throw new IOException("Journal is not writable", failure);
+                }
+                FileChannel next = open(file);
+                channel.close();
+                channel = next;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while rotating the journal");
+            } finally {
+                rotating = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The writer thread: writes and syncs whatever has been appended, as one batch.
+     */
+    private void writeRecords() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long upTo;
+            FileChannel target;
+            synchronized (lock) {
+                while (durable == appended && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // only close() stops the writer
+                    }
+                }
+                if (durable == appended) {
+                    return; // closed and nothing left
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                upTo = appended;
+                target = channel;
+            }
+
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(batch.toByteArray());
+                while (bytes.hasRemaining()) {
+                    target.write(bytes);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            } finally {
+                batch.reset();
+            }
+
+            synchronized (lock) {
+                durable = upTo;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes what is still pending and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads every whole record of a log file, in order. Reading stops quietly at a record that was torn
+     * or damaged, which can only be at the end of a file that was being written during a crash.
+     * @param file the log file
+     * @param records gets each record
+     * @return the number of records read
+     * @throws IOException if the file can't be read
+     */
+    static long read(File file, Consumer<byte[]> records) throws IOException {
+        long count = 0;
+        CRC32 check = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            while (true) {
+                byte[] record;
+                int expected;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > 1 << 26) {
+                        return count;
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                    expected = in.readInt();
+                } catch (EOFException e) {
+                    return count;
+                }
+
+                check.reset();
+                check.update(record, 0, record.length);
+                if ((int) check.getValue() != expected) {
+                    return count;
+                }
+                records.accept(record);
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Lets pendingOut keep writing to whichever buffer is pending after the buffers are swapped.
+     */
+    private final class ForwardingStream extends java.io.OutputStream {
+        @Override
+        public void write(int b) {
+            pending.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            pending.write(bytes, offset, length);
+        }
+    }
+}
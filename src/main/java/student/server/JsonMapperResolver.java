@@ -0,0 +1,18 @@
+package student.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import student.adventure.Json;
+
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Makes Jersey read and write JSON bodies with the shared mapper, instead of a mapper of its own.
+ */
+@Provider
+public class JsonMapperResolver implements ContextResolver<ObjectMapper> {
+    @Override
+    public ObjectMapper getContext(Class<?> type) {
+        return Json.mapper();
+    }
+}
@@ -0,0 +1,273 @@
+package student.server;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The best score of every player who won a game, kept in a SQLite file and as an in-memory top list.
+ *
+ * Reads only look at the top list, a skip list ordered by score that any number of threads can read
+ * while a score is being added. New best scores are queued and written to the file by a background
+ * thread, many in one transaction, so winning a game never waits for the disk. A score that was
+ * queued but not yet written is lost if the process is killed; on a normal exit the queue is flushed.
+ */
+public class Leaderboard implements AutoCloseable {
+    /**
+     * The score of a game won without a single move. Every move costs MOVE_PENALTY points.
+     */
+    public static final int MAX_SCORE = 1000;
+    public static final int MOVE_PENALTY = 10;
+
+    private static final Logger logger = Logger.getLogger(Leaderboard.class.getName());
+    private static final long FLUSH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final int MAX_BATCH = 1000;
+
+    /**
+     * One player's best score. Higher scores come first; equal scores are ordered by name.
+     */
+    static final class Score implements Comparable<Score> {
+        final String player;
+        final int score;
+
+        Score(String player, int score) {
+            this.player = player;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Score other) {
+            int byScore = Integer.compare(other.score, score);
+            return byScore != 0 ? byScore : player.compareTo(other.player);
+        }
+    }
+
+    private final int size;
+    private final ConcurrentSkipListSet<Score> top = new ConcurrentSkipListSet<>();
+    private final Map<String, Score> topByPlayer = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Score> unwritten = new ConcurrentLinkedQueue<>();
+    private final Connection connection;   // null if scores are only kept in memory
+    private final Object fileLock = new Object(); // held while writing, never while adding to the top list
+    private final List<Score> failedBatch = new ArrayList<>(); // written again first; guarded by fileLock
+    private final Thread shutdownHook;     // null if scores are only kept in memory
+    private volatile boolean closed;
+
+    /**
+     * Opens the leaderboard file, creating it if needed, and reads the top scores from it.
+     * @param file the SQLite file, or null to keep scores in memory only
+     * @param size the number of players on the leaderboard
+     * @throws SQLException if the file can't be opened or read
+     */
+    public Leaderboard(String file, int size) throws SQLException {
+        if (size < 1) {
+            throw new IllegalArgumentException("Leaderboard size must be positive");
+        }
+        this.size = size;
+        if (file == null) {
+            connection = null;
+            shutdownHook = null;
+            return;
+        }
+
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("CREATE TABLE IF NOT EXISTS leaderboard ("
+                    + "player TEXT PRIMARY KEY, score INTEGER NOT NULL)");
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT player, score FROM leaderboard ORDER BY score DESC, player LIMIT " + size)) {
+                while (rows.next()) {
+                    offer(new Score(rows.getString(1), rows.getInt(2)));
+                }
+            }
+        }
+        connection.setAutoCommit(false);
+
+        Thread writer = new Thread(this::writeScores, "leaderboard-writer");
+        writer.setDaemon(true);
+        writer.start();
+        shutdownHook = new Thread(this::close, "leaderboard-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Computes the score of a won game.
+     * @param moves the number of times the player moved to another room
+     * @return the score, at least 1
+     */
+    public static int score(long moves) {
+        return (int) Math.max(1, MAX_SCORE - Math.min(moves, MAX_SCORE) * MOVE_PENALTY);
+    }
+
+    /**
+     * Records a score, if it is the player's best. Never waits for the file to be written.
+     * @param player the name of the player
+     * @param score the score of the game the player won
+     */
+    public void record(String player, int score) {
+        Score entry = new Score(player, score);
+        if (offer(entry) && connection != null) {
+            unwritten.add(entry);
+        }
+    }
+
+    /**
+     * Puts a score on the top list if the player has no better score and it is good enough.
+     * @return false if the score is not the player's best on the top list; it may still be their best
+     *         overall, and the file keeps the best of every score it is given
+     */
+    private synchronized boolean offer(Score entry) {
+        Score previous = topByPlayer.get(entry.player);
+        if (previous != null && previous.score >= entry.score) {
+            return false;
+        }
+        if (previous == null && top.size() >= size && top.last().compareTo(entry) <= 0) {
+            return true; // not on the top list, but possibly the player's best, so still written
+        }
+
+        // add before removing, so a reader never misses the player; readers skip the older score
+        top.add(entry);
+        topByPlayer.put(entry.player, entry);
+        if (previous != null) {
+            top.remove(previous);
+        }
+        while (top.size() > size) {
+            Score dropped = top.pollLast();
+            topByPlayer.remove(dropped.player, dropped);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the top players, best first.
+     * @return a map of player names to scores that iterates from the best score down
+     */
+    public SortedMap<String, Integer> getTop() {
+        List<Score> scores = new ArrayList<>(size);
+        Map<String, Integer> rank = new HashMap<>();
+        for (Score entry : top) {
+            if (rank.putIfAbsent(entry.player, scores.size()) == null) {
+                scores.add(entry);
+            }
+        }
+
+        // players who are not on the list sort after everyone, so looking them up finds nothing
+        SortedMap<String, Integer> result = new TreeMap<>(
+                Comparator.comparing(player -> rank.getOrDefault(player, Integer.MAX_VALUE)));
+        for (Score entry : scores) {
+            result.put(entry.player, entry.score);
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    /**
+     * The writer thread: writes the scores queued in the last FLUSH_INTERVAL together.
+     */
+    private void writeScores() {
+        while (!closed) {
+            LockSupport.parkNanos(FLUSH_INTERVAL);
+            flush();
+        }
+    }
+
+    /**
+     * Writes every queued score, in transactions of up to MAX_BATCH scores.
+     */
+    void flush() {
+        synchronized (fileLock) {
+            if (connection != null && !isConnectionClosed()) {
+                writeQueued();
+            }
+        }
+    }
+
+    /**
+     * Writes the queued scores. A batch that fails, e.g. because the disk is full, is rolled back and
+     * kept to be written first by the next flush, so no score is lost and no partial batch is committed.
+     */
+    private void writeQueued() {
+        try (PreparedStatement upsert = connection.prepareStatement(
+                "INSERT INTO leaderboard (player, score) VALUES (?, ?) "
+                        + "ON CONFLICT (player) DO UPDATE SET score = max(score, excluded.score)")) {
+            while (!failedBatch.isEmpty() || !unwritten.isEmpty()) {
+                // the file keeps the best score of a player, so the order scores are written in doesn't matter
+                while (failedBatch.size() < MAX_BATCH) {
+                    Score entry = unwritten.poll();
+                    if (entry == null) {
+                        break;
+                    }
+                    failedBatch.add(entry);
+                }
+                for (Score entry : failedBatch) {
+                    upsert.setString(1, entry.player);
+                    upsert.setInt(2, entry.score);
+                    upsert.addBatch();
+                }
+                upsert.executeBatch();
+                connection.commit();
+                failedBatch.clear();
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Could not write " + failedBatch.size()
+                    + " leaderboard scores; they are written again with the next scores", e);
+            try {
+                connection.rollback();
+            } catch (SQLException rollback) {
+                logger.log(Level.WARNING, "Could not roll back the leaderboard scores", rollback);
+            }
+        }
+    }
+
+    /**
+     * Writes every queued score and closes the file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
+            try {
+                // so a closed leaderboard and its connection aren't kept until the JVM exits
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the JVM is already shutting down; the hook runs and finds the file closed
+            }
+        }
+        synchronized (fileLock) {
+            if (connection == null || isConnectionClosed()) {
+                return;
+            }
+            writeQueued();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Could not close the leaderboard file", e);
+            }
+        }
+    }
+
+    private boolean isConnectionClosed() {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
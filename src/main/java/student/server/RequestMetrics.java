@@ -0,0 +1,85 @@
+package student.server;
+
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import student.metrics.LatencyHistogram;
+import student.metrics.LatencySummary;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the requests of every endpoint and records their latency, from the moment Jersey gets the
+ * request until the response is written. Endpoints are named after their resource method, e.g.
+ * "handleCommand"; requests that match no endpoint count as "unmatched".
+ *
+ * Every endpoint records into a few histograms, picked by thread, and they are only added up when the
+ * metrics are read, so request threads rarely touch the same counters.
+ */
+public class RequestMetrics implements ApplicationEventListener {
+    private static final String UNMATCHED = "unmatched";
+    private static final int STRIPES = // the number of processors rounded up to a power of two, at most 8
+            Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent event) {
+        long start = System.nanoTime();
+        return finished -> {
+            if (finished.getType() == RequestEvent.Type.FINISHED) {
+                ResourceMethod method = finished.getUriInfo().getMatchedResourceMethod();
+                String name = method == null ? UNMATCHED : method.getInvocable().getDefinitionMethod().getName();
+                ContainerResponse response = finished.getContainerResponse();
+                boolean failed = response == null || response.getStatus() >= 500;
+                endpoints.computeIfAbsent(name, key -> new Endpoint()).record(System.nanoTime() - start, failed);
+            }
+        };
+    }
+
+    /**
+     * @return the figures of every endpoint that had a request, by name
+     */
+    public Map<String, ServerMetrics.EndpointStats> getStats() {
+        Map<String, ServerMetrics.EndpointStats> stats = new TreeMap<>();
+        endpoints.forEach((name, endpoint) -> stats.put(name, endpoint.getStats()));
+        return stats;
+    }
+
+    private static final class Endpoint {
+        private final LatencyHistogram[] latencies = new LatencyHistogram[STRIPES];
+        private final LongAdder errors = new LongAdder();
+
+        Endpoint() {
+            for (int i = 0; i < STRIPES; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        void record(long nanos, boolean failed) {
+            latencies[(int) Thread.currentThread().getId() & (STRIPES - 1)].record(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        ServerMetrics.EndpointStats getStats() {
+            LatencyHistogram total = new LatencyHistogram();
+            for (LatencyHistogram stripe : latencies) {
+                total.add(stripe);
+            }
+            return new ServerMetrics.EndpointStats(errors.sum(), LatencySummary.of(total));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package student.server;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import student.adventure.World;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The parts of a game status that only depend on the room, encoded as JSON once per room of a world
+ * instead of once per response.
+ *
+ * A room's description, image and directions never change, so they are kept as SerializedStrings, which
+ * hold their quoted UTF-8 bytes after the first write. Writing a status then copies those bytes, and
+ * only the items, the inventory and a history message are encoded each time. Rooms are encoded the
+ * first time a game is in them, so a large world only pays for the rooms that are played.
+ */
+final class RoomFragments {
+    /**
+     * Worlds with up to this many rooms keep their rooms in an array; larger ones in a map.
+     */
+    private static final int ARRAY_ROOMS = 1 << 16;
+
+    private final AtomicReferenceArray<Room> small;     // null for a large world
+    private final ConcurrentMap<Integer, Room> large;  // null for a small world
+    private final SerializableString videoUrl;
+
+    private RoomFragments(World world) {
+        int rooms = world.getRoomCount();
+        small = rooms <= ARRAY_ROOMS ? new AtomicReferenceArray<>(rooms) : null;
+        large = rooms <= ARRAY_ROOMS ? null : new ConcurrentHashMap<>();
+        videoUrl = encode(world.getVideoUrl());
+    }
+
+    /**
+     * @param world a world
+     * @return the fragments of the world, the same for every game in it; kept on the world, so they go
+     *         away with it
+     */
+    static RoomFragments of(World world) {
+        return world.attachment(RoomFragments.class, RoomFragments::new);
+    }
+
+    /**
+     * @param world the world these are the fragments of
+     * @param roomId a room of the world
+     * @return the encoded parts of the room, encoded now if no game was in it before
+     */
+    Room room(World world, int roomId) {
+        Room room = small != null ? small.get(roomId) : large.get(roomId);
+        if (room == null) {
+            // two threads may both encode a room; they make equal fragments and either one is kept
+            room = new Room(world, roomId, videoUrl);
+            if (small != null) {
+                small.lazySet(roomId, room);
+            } else {
+                large.putIfAbsent(roomId, room);
+            }
+        }
+        return room;
+    }
+
+    private static SerializableString encode(String text) {
+        return text == null ? null : new SerializedString(text);
+    }
+
+    /**
+     * The encoded parts of one room, as a status shows them.
+     */
+    static final class Room {
+        /**
+         * For a status whose message is the room description.
+         */
+        final GameStatus.Encoded described;
+        /**
+         * For a status with another message, e.g. the history.
+         */
+        final GameStatus.Encoded other;
+
+        private Room(World world, int roomId, SerializableString videoUrl) {
+            List<String> directions = world.getDirectionNames(roomId);
+            SerializableString[] go = new SerializableString[directions.size()];
+            for (int i = 0; i < go.length; i++) {
+                go[i] = encode(directions.get(i));
+            }
+            SerializableString image = encode(world.getImage(roomId));
+            if (roomId == world.getEndingRoomId()) {
+                videoUrl = null; // the end of the game shows no video and no options
+                go = null;
+            }
+            described = new GameStatus.Encoded(encode(world.getDescription(roomId)), image, videoUrl, go);
+            other = new GameStatus.Encoded(null, image, videoUrl, go);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package student.server;
+
+import student.adventure.RoomHistory;
+
+import java.util.Properties;
+
+/**
+ * Settings of the server, read from "adventure.*" system properties, e.g.
+ * -Dadventure.accessLog.sampleRate=0.01. Every setting has a default, so the server runs without any.
+ */
+public final class ServerConfig {
+    /**
+     * Address the HTTPS listener binds to.
+     */
+    private final String host;
+    /**
+     * Port of the HTTPS listener, or 0 for no HTTPS listener, e.g. when a proxy on the same machine
+     * terminates TLS and only the plaintext listener is needed.
+     */
+    private final int port;
+    /**
+     * Address the plaintext listener binds to. It is the loopback address by default, so plain HTTP is
+     * only reachable by a proxy on the same machine.
+     */
+    private final String plaintextHost;
+    /**
+     * Port of the plaintext HTTP listener, or 0 for none.
+     */
+    private final int plaintextPort;
+    /**
+     * Whether the plaintext listener also speaks HTTP/2, both with prior knowledge and by upgrading an
+     * HTTP/1.1 connection.
+     */
+    private final boolean http2;
+    /**
+     * Number of streams one HTTP/2 connection may have open at once.
+     */
+    private final int http2MaxStreams;
+    /**
+     * Keystore file with the server's key pair, and its password.
+     */
+    private final String keystoreFile;
+    private final String keystorePassword;
+    /**
+     * Truststore file with the client certificates, and its password.
+     */
+    private final String truststoreFile;
+    private final String truststorePassword;
+    /**
+     * Number of TLS sessions the server keeps for clients to resume, or 0 for no limit.
+     */
+    private final int tlsSessionCacheSize;
+    /**
+     * Seconds a TLS session can be resumed for, or 0 for no limit.
+     */
+    private final int tlsSessionTimeoutSeconds;
+    /**
+     * Whether the server hands out session tickets, so clients can resume sessions that are no longer
+     * in the cache. The JDK reads this once, so it has to be set before the first TLS connection.
+     */
+    private final boolean tlsSessionTickets;
+    /**
+     * The threads requests are handled on.
+     */
+    private final ExecutionModel executionModel;
+    /**
+     * Number of worker threads of the fixed pool.
+     */
+    private final int workerThreads;
+    /**
+     * Number of requests that can wait for a worker of the fixed pool.
+     */
+    private final int workerQueueLimit;
+    /**
+     * File the access log is appended to. Without it the access log goes to the java.util.logging
+     * logger "student.server.access".
+     */
+    private final String accessLogFile;
+    /**
+     * Fraction of requests, from 0 to 1, whose request and response bodies are put in the access log.
+     */
+    private final double accessLogSampleRate;
+    /**
+     * Number of access log entries that can wait for the writer. Entries beyond that are dropped and
+     * counted, never waited for.
+     */
+    private final int accessLogCapacity;
+    /**
+     * Number of status updates that can wait to be sent to one event stream subscriber. When a subscriber
+     * falls further behind, its oldest waiting updates are dropped; every update is a whole status, so
+     * it only misses intermediate states.
+     */
+    private final int eventBufferSize;
+    /**
+     * Number of threads that send status updates to event stream subscribers, shared by every
+     * subscriber. A subscriber with updates waiting takes a thread for one update at a time.
+     */
+    private final int eventWriterThreads;
+    /**
+     * SQLite file the leaderboard is kept in. Set it to an empty value to keep scores in memory only.
+     */
+    private final String leaderboardFile;
+    /**
+     * Number of players on the leaderboard.
+     */
+    private final int leaderboardSize;
+    /**
+     * Directory of the journal every game is kept in, so games survive a restart. Set it to an empty
+     * value to keep games in memory only.
+     */
+    private final String journalDir;
+    /**
+     * Number of journal records after which every game is written to a snapshot and the older journal
+     * files are deleted. It bounds both the size of the journal and the work of starting up.
+     */
+    private final int snapshotEvery;
+    /**
+     * Seconds a game may go unused before it is spilled to disk, or 0 to never spill games for being idle.
+     */
+    private final int evictionIdleSeconds;
+    /**
+     * The memory budget: the most games kept in memory, or 0 for no limit. Beyond it the least recently
+     * used games are spilled to disk.
+     */
+    private final int evictionMaxResident;
+    /**
+     * Directory spilled games are written to. The files are deleted when the server starts.
+     */
+    private final String evictionDir;
+    /**
+     * Seconds between sweeps over the games for ones to spill.
+     */
+    private final int evictionSweepSeconds;
+    /**
+     * Number of most recent room visits a game keeps for its history. Older visits are still counted,
+     * but their rooms are forgotten, so a game's memory doesn't grow with the length of play.
+     */
+    private final int historyCapacity;
+
+    /**
+     * @param properties the settings, as "adventure.*" keys
+     * @throws IllegalArgumentException if a setting has a value that is not valid
+     */
+    public ServerConfig(Properties properties) {
+        host = properties.getProperty("adventure.server.host", "0.0.0.0").trim();
+        port = intValue(properties, "adventure.server.port", 8080);
+        plaintextHost = properties.getProperty("adventure.server.plaintextHost", "127.0.0.1").trim();
+        plaintextPort = intValue(properties, "adventure.server.plaintextPort", 0);
+        http2 = booleanValue(properties, "adventure.server.http2", false);
+        http2MaxStreams = intValue(properties, "adventure.server.http2.maxStreams", 100);
+        keystoreFile = properties.getProperty("adventure.tls.keystore", "src/main/resources/keystore_server");
+        keystorePassword = properties.getProperty("adventure.tls.keystorePassword", "asdfgh");
+        truststoreFile = properties.getProperty("adventure.tls.truststore", "src/main/resources/truststore_server");
+        truststorePassword = properties.getProperty("adventure.tls.truststorePassword", "asdfgh");
+        tlsSessionCacheSize = intValue(properties, "adventure.tls.sessionCacheSize", 20480);
+        tlsSessionTimeoutSeconds = intValue(properties, "adventure.tls.sessionTimeoutSeconds", 86400);
+        tlsSessionTickets = booleanValue(properties, "adventure.tls.sessionTickets", true);
+        executionModel = ExecutionModel.fromString(properties.getProperty("adventure.server.executor", "default"));
+        workerThreads = intValue(properties, "adventure.server.workerThreads",
+                2 * Runtime.getRuntime().availableProcessors());
+        workerQueueLimit = intValue(properties, "adventure.server.queueLimit", 1024);
+        accessLogFile = properties.getProperty("adventure.accessLog.file");
+        accessLogSampleRate = doubleValue(properties, "adventure.accessLog.sampleRate", 0);
+        accessLogCapacity = intValue(properties, "adventure.accessLog.capacity", 8192);
+        eventBufferSize = intValue(properties, "adventure.events.bufferSize", 16);
+        eventWriterThreads = intValue(properties, "adventure.events.writerThreads",
+                Runtime.getRuntime().availableProcessors());
+        String file = properties.getProperty("adventure.leaderboard.file", "leaderboard.db").trim();
+        leaderboardFile = file.isEmpty() ? null : file;
+        leaderboardSize = intValue(properties, "adventure.leaderboard.size", 100);
+        String dir = properties.getProperty("adventure.journal.dir", "journal").trim();
+        journalDir = dir.isEmpty() ? null : dir;
+        snapshotEvery = intValue(properties, "adventure.journal.snapshotEvery", 100_000);
+        evictionIdleSeconds = intValue(properties, "adventure.eviction.idleSeconds", 1800);
+        evictionMaxResident = intValue(properties, "adventure.eviction.maxResident", 0);
+        evictionDir = properties.getProperty("adventure.eviction.dir", "spill").trim();
+        evictionSweepSeconds = intValue(properties, "adventure.eviction.sweepSeconds", 30);
+        historyCapacity = intValue(properties, "adventure.game.historyCapacity", RoomHistory.DEFAULT_CAPACITY);
+
+        if (port < 0 || port > 65535 || plaintextPort < 0 || plaintextPort > 65535) {
+            throw new IllegalArgumentException("adventure.server.port and plaintextPort must be from 0 to 65535");
+        }
+        if (port == 0 && plaintextPort == 0) {
+            throw new IllegalArgumentException("adventure.server.port and plaintextPort can't both be 0");
+        }
+        if (port != 0 && port == plaintextPort) {
+            throw new IllegalArgumentException("adventure.server.port and plaintextPort must be different");
+        }
+        if (http2MaxStreams < 1) {
+            throw new IllegalArgumentException("adventure.server.http2.maxStreams must be positive");
+        }
+        if (tlsSessionCacheSize < 0 || tlsSessionTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("adventure.tls.sessionCacheSize and sessionTimeoutSeconds can't be negative");
+        }
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("adventure.server.workerThreads must be positive");
+        }
+        if (workerQueueLimit < 1) {
+            throw new IllegalArgumentException("adventure.server.queueLimit must be positive");
+        }
+        if (accessLogSampleRate < 0 || accessLogSampleRate > 1) {
+            throw new IllegalArgumentException("adventure.accessLog.sampleRate must be between 0 and 1");
+        }
+        if (accessLogCapacity < 1) {
+            throw new IllegalArgumentException("adventure.accessLog.capacity must be positive");
+        }
+        if (eventBufferSize < 1) {
+            throw new IllegalArgumentException("adventure.events.bufferSize must be positive");
+        }
+        if (eventWriterThreads < 1) {
+            throw new IllegalArgumentException("adventure.events.writerThreads must be positive");
+        }
+        if (leaderboardSize < 1) {
+            throw new IllegalArgumentException("adventure.leaderboard.size must be positive");
+        }
+        if (snapshotEvery < 1) {
+            throw new IllegalArgumentException("adventure.journal.snapshotEvery must be positive");
+        }
+        if (evictionIdleSeconds < 0 || evictionMaxResident < 0) {
+            throw new IllegalArgumentException("adventure.eviction.idleSeconds and maxResident can't be negative");
+        }
+        if (evictionSweepSeconds < 1) {
+            throw new IllegalArgumentException("adventure.eviction.sweepSeconds must be positive");
+        }
+        if (evictionDir.isEmpty()) {
+            throw new IllegalArgumentException("adventure.eviction.dir can't be empty");
+        }
+        if (historyCapacity < 1) {
+            throw new IllegalArgumentException("adventure.game.historyCapacity must be positive");
+        }
+    }
+
+    /**
+     * @return the settings given as system properties
+     */
+    public static ServerConfig fromSystemProperties() {
+        return new ServerConfig(System.getProperties());
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return the port of the HTTPS listener, or 0 if there is none
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public String getPlaintextHost() {
+        return plaintextHost;
+    }
+
+    /**
+     * @return the port of the plaintext listener, or 0 if there is none
+     */
+    public int getPlaintextPort() {
+        return plaintextPort;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public int getHttp2MaxStreams() {
+        return http2MaxStreams;
+    }
+
+    public String getKeystoreFile() {
+        return keystoreFile;
+    }
+
+    public String getKeystorePassword() {
+        return keystorePassword;
+    }
+
+    public String getTruststoreFile() {
+        return truststoreFile;
+    }
+
+    public String getTruststorePassword() {
+        return truststorePassword;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    public int getTlsSessionTimeoutSeconds() {
+        return tlsSessionTimeoutSeconds;
+    }
+
+    public boolean isTlsSessionTickets() {
+        return tlsSessionTickets;
+    }
+
+    public ExecutionModel getExecutionModel() {
+        return executionModel;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getWorkerQueueLimit() {
+        return workerQueueLimit;
+    }
+
+    public String getAccessLogFile() {
+        return accessLogFile;
+    }
+
+    public double getAccessLogSampleRate() {
+        return accessLogSampleRate;
+    }
+
+    public int getAccessLogCapacity() {
+        return accessLogCapacity;
+    }
+
+    public int getEventBufferSize() {
+        return eventBufferSize;
+    }
+
+    public int getEventWriterThreads() {
+        return eventWriterThreads;
+    }
+
+    public String getLeaderboardFile() {
+        return leaderboardFile;
+    }
+
+    public int getLeaderboardSize() {
+        return leaderboardSize;
+    }
+
+    public String getJournalDir() {
+        return journalDir;
+    }
+
+    public int getSnapshotEvery() {
+        return snapshotEvery;
+    }
+
+    /**
+     * @return true if games are ever spilled to disk
+     */
+    public boolean isEvictionEnabled() {
+        return evictionIdleSeconds > 0 || evictionMaxResident > 0;
+    }
+
+    public int getEvictionIdleSeconds() {
+        return evictionIdleSeconds;
+    }
+
+    public int getEvictionMaxResident() {
+        return evictionMaxResident;
+    }
+
+    public String getEvictionDir() {
+        return evictionDir;
+    }
+
+    public int getEvictionSweepSeconds() {
+        return evictionSweepSeconds;
+    }
+
+    public int getHistoryCapacity() {
+        return historyCapacity;
+    }
+
+    static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a whole number, not \"" + value + "\"", e);
+        }
+    }
+
+    static boolean booleanValue(Properties properties, String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.trim().equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.trim().equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(key + " must be true or false, not \"" + value + "\"");
+    }
+
+    static double doubleValue(Properties properties, String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number, not \"" + value + "\"", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package student.server;
+
+import student.metrics.JvmStats;
+import student.metrics.LatencySummary;
+
+import java.util.Map;
+
+/**
+ * Everything the metrics endpoint reports: requests by endpoint, the game engine, idle game eviction
+ * and the JVM.
+ */
+public class ServerMetrics {
+    private final Map<String, EndpointStats> endpoints;
+    private final EngineStats engine;
+    private final EvictionStats eviction;
+    private final JvmStats jvm;
+
+    public ServerMetrics(Map<String, EndpointStats> endpoints, EngineStats engine, EvictionStats eviction,
+                         JvmStats jvm) {
+        this.endpoints = endpoints;
+        this.engine = engine;
+        this.eviction = eviction;
+        this.jvm = jvm;
+    }
+
+    public Map<String, EndpointStats> getEndpoints() {
+        return endpoints;
+    }
+
+    public EngineStats getEngine() {
+        return engine;
+    }
+
+    public EvictionStats getEviction() {
+        return eviction;
+    }
+
+    public JvmStats getJvm() {
+        return jvm;
+    }
+
+    /**
+     * Requests of one endpoint: how many failed with a server error, and the latency of all of them.
+     */
+    public static class EndpointStats {
+        private final long errors;
+        private final LatencySummary latency;
+
+        public EndpointStats(long errors, LatencySummary latency) {
+            this.errors = errors;
+            this.latency = latency;
+        }
+
+        public long getRequests() {
+            return latency.getCount();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public LatencySummary getLatency() {
+            return latency;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package student.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import student.adventure.Json;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-sent event streams of game states, one stream per game instance with any number of subscribers.
+ *
+ * A new status is turned into an event once, as JSON text, and the same event object is handed to every
+ * subscriber. Each subscriber has its own bounded queue, sent from by a fixed pool of writer threads one
+ * event at a time: the next event of a subscriber is handed to the pool when the send of the last one
+ * completes, so a subscriber that is waiting on its client holds no thread, and the subscribers with
+ * events waiting take turns. A slow subscriber never holds up the command that published the status.
+ * When a queue is full its oldest status is dropped: every status is complete, so the subscriber only
+ * misses states in between.
+ */
+class StatusStreams {
+    private static final Logger logger = Logger.getLogger(StatusStreams.class.getName());
+    private static final ObjectWriter statusWriter = Json.writerFor(GameStatus.class);
+
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService writers;
+    private final int bufferSize;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param bufferSize the number of statuses that can wait to be sent to one subscriber
+     * @param writerThreads the number of threads sending to subscribers
+     */
+    StatusStreams(int bufferSize, int writerThreads) {
+        this.bufferSize = bufferSize;
+        AtomicInteger threads = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, task -> {
+            Thread thread = new Thread(task, "status-stream-writer-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds a subscriber to the stream of a game and sends it the current state of the game first.
+     * @param id the instance ID
+     * @param sink the subscriber's event stream
+     * @param sse used to build events
+     * @param currentStatus gets the current state of the game, or null if there is no such game; it is
+     *                      called after the subscriber is added, so no later state can be missed
+     * @return false if there is no such game, in which case the sink is closed
+     */
+    boolean subscribe(int id, SseEventSink sink, Sse sse, Supplier<GameStatus> currentStatus) {
+        Subscriber subscriber = new Subscriber(sink);
+        // joined inside compute, so the channel can't be dropped as empty before the subscriber is in it
+        Channel channel = channels.compute(id, (key, existing) -> {
+            Channel joined = existing == null ? new Channel(id, sse) : existing;
+            subscriber.channel = joined;
+            joined.subscribers.add(subscriber);
+            return joined;
+        });
+
+        GameStatus status = currentStatus.get();
+        if (status == null) {
+            subscriber.leave();
+            return false;
+        }
+
+        synchronized (channel) {
+            if (!channel.publish(status)) {
+                // a newer or the same state went out already, just not to this subscriber
+                subscriber.offer(channel.lastEvent);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends a new state of a game to every subscriber of its stream. States older than the last one
+     * sent are ignored, so states published out of order by concurrent commands never go backwards.
+     * @param status the new state
+     */
+    void publish(GameStatus status) {
+        Channel channel = channels.get(status.getId());
+        if (channel == null) {
+            return; // nobody is watching; the common case, so it costs one lookup
+        }
+        synchronized (channel) {
+            channel.publish(status);
+        }
+    }
+
+    /**
+     * Ends the stream of a game, e.g. because the game was destroyed.
+     * @param id the instance ID
+     */
+    void close(int id) {
+        Channel channel = channels.remove(id);
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Ends every stream.
+     */
+    void closeAll() {
+        for (Integer id : channels.keySet()) {
+            close(id);
+        }
+    }
+
+    /**
+     * @return the number of subscribers of a game's stream
+     */
+    int getSubscriberCount(int id) {
+        Channel channel = channels.get(id);
+        return channel == null ? 0 : channel.subscribers.size();
+    }
+
+    /**
+     * @return the number of statuses dropped, over all subscribers, because a subscriber fell behind
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * The subscribers of one game and the last event sent to them. Publishing holds the channel's lock.
+     */
+    private final class Channel {
+        final int id;
+        final Sse sse;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        long lastVersion = -1;
+        OutboundSseEvent lastEvent;
+
+        Channel(int id, Sse sse) {
+            this.id = id;
+            this.sse = sse;
+        }
+
+        /**
+         * @return false if the status was not newer than the last one sent
+         */
+        boolean publish(GameStatus status) {
+            if (status.getVersion() <= lastVersion) {
+                return false;
+            }
+
+            String json;
+            try {
+                json = statusWriter.writeValueAsString(status);
+            } catch (JsonProcessingException e) {
+                logger.log(Level.WARNING, "Could not serialize the status of game " + id, e);
+                return false;
+            }
+            lastVersion = status.getVersion();
+            lastEvent = sse.newEventBuilder()
+                    .name("status")
+                    .id(Long.toString(status.getVersion()))
+                    .mediaType(MediaType.TEXT_PLAIN_TYPE) // already JSON text; written as it is
+                    .data(String.class, json)
+                    .build();
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(lastEvent);
+            }
+            return true;
+        }
+
+        void close() {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.sink.close();
+            }
+            subscribers.clear();
+        }
+    }
+
+    /**
+     * One subscriber's event stream, its queue of events waiting to be sent and whether a writer thread
+     * is sending them.
+     */
+    private final class Subscriber {
+        final SseEventSink sink;
+        final ArrayBlockingQueue<OutboundSseEvent> queue = new ArrayBlockingQueue<>(bufferSize);
+        final AtomicBoolean writing = new AtomicBoolean();
+        Channel channel;  // set once, when the subscriber joins
+
+        Subscriber(SseEventSink sink) {
+            this.sink = sink;
+        }
+
+        void offer(OutboundSseEvent event) {
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            if (writing.compareAndSet(false, true)) {
+                writers.execute(this::write);
+            }
+        }
+
+        /**
+         * Sends the next queued event, and hands the one after it to the writers once the send completes.
+         * Only one send runs per subscriber at a time; the subscriber holds no thread while a send waits
+         * on the client.
+         */
+        private void write() {
+            OutboundSseEvent event = queue.poll();
+            if (event == null) {
+                writing.set(false);
+                // an event may have been queued after the poll but before writing was cleared
+                if (!queue.isEmpty() && writing.compareAndSet(false, true)) {
+                    writers.execute(this::write);
+                }
+                return;
+            }
+
+            CompletionStage<?> sent;
+            try {
+                if (sink.isClosed()) {
+                    throw new IllegalStateException("closed");
+                }
+                sent = sink.send(event);
+            } catch (RuntimeException e) {
+                failed();
+                return;
+            }
+            sent.whenComplete((result, e) -> {
+                if (e != null) {
+                    failed();
+                } else {
+                    writers.execute(this::write);
+                }
+            });
+        }
+
+        /**
+         * The client went away; writing stays set, so no writer is started for it again.
+         */
+        private void failed() {
+            queue.clear();
+            leave();
+        }
+
+        /**
+         * Removes this subscriber from its channel, and the channel from the streams if it was the last one.
+         */
+        void leave() {
+            channel.subscribers.remove(this);
+            channels.computeIfPresent(channel.id, (key, existing) ->
+                    existing == channel && existing.subscribers.isEmpty() ? null : existing);
+            sink.close();
+        }
+    }
+}
@@ -1,15 +1,127 @@
 package student.server;
 
 import student.adventure.Adventure;
+import student.adventure.Layout;
+import student.adventure.LayoutValidator;
+import student.adventure.LoadProgress;
+import student.adventure.World;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class myAdventureService implements AdventureService {
-    private int id = -1;
-    private ArrayList<Adventure> adventures = new ArrayList<>();
-    private String[] commands = new String[2];
+    /**
+     * The map every game is played on. Set the adventure.map system property to use another map, for
+     * example a file compiled by WorldCompiler.
+     */
+    private static final String MAP_PATH =
+            System.getProperty("adventure.map", "src/main/java/student/myAdventureMap.json");
+    private static final Logger logger = Logger.getLogger(myAdventureService.class.getName());
+
+    private final GameRegistry<GameSession> adventures = new GameRegistry<>();
+    private final Leaderboard leaderboard;
+    private final GameStore store; // null if games are lost when the server stops
+    private final Evictor evictor; // null if every game stays in memory
+    private final int historyCapacity; // the room visits each game keeps
+    private final EngineMetrics metrics = new EngineMetrics();
+    private final LoadProgress loadProgress = metrics.recording(LoadProgress.log(logger));
+
+    /**
+     * Creates the service with the leaderboard, journal and eviction configured by the adventure.* system
+     * properties, rebuilding the games kept in the journal.
+     * @throws UncheckedIOException if the journal can't be read or opened
+     */
+    public myAdventureService() {
+        this(ServerConfig.fromSystemProperties());
+    }
+
+    private myAdventureService(ServerConfig config) {
+        this(openLeaderboard(config), config);
+    }
+
+    /**
+     * Creates a service that keeps every game in memory and loses them when it stops.
+     * @param leaderboard where the scores of won games go
+     */
+    public myAdventureService(Leaderboard leaderboard) {
+        this(leaderboard, inMemory());
+    }
+
+    /**
+     * Creates a service with the journal and eviction settings of a configuration, rebuilding the games
+     * already in the journal.
+     * @param leaderboard where the scores of won games go
+     * @param config the settings; the leaderboard settings are not used
+     * @throws UncheckedIOException if the journal can't be read or opened, or the spill directory created
+     */
+    public myAdventureService(Leaderboard leaderboard, ServerConfig config) {
+        this.leaderboard = leaderboard;
+        this.historyCapacity = config.getHistoryCapacity();
+        try {
+            store = config.getJournalDir() == null ? null : new GameStore(new File(config.getJournalDir()),
+                    config.getSnapshotEvery(), historyCapacity, this::defaultWorld, leaderboard, adventures);
+        } catch (IOException e) {
+            // starting empty would hide the games in the journal, so don't start at all
+            throw new UncheckedIOException("Could not open the journal in " + config.getJournalDir(), e);
+        }
+        try {
+            evictor = !config.isEvictionEnabled() ? null : new Evictor(new File(config.getEvictionDir()),
+                    TimeUnit.SECONDS.toMillis(config.getEvictionIdleSeconds()), config.getEvictionMaxResident(),
+                    TimeUnit.SECONDS.toMillis(config.getEvictionSweepSeconds()), adventures);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the spill directory " + config.getEvictionDir(), e);
+        }
+
+        // load the map now, so the first game doesn't wait for it
+        try {
+            Adventure.loadWorld(MAP_PATH, loadProgress);
+        } catch (FileNotFoundException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Could not load the map " + MAP_PATH + "; new games will fail", e);
+        }
+    }
+
+    private static ServerConfig inMemory() {
+        Properties properties = new Properties();
+        properties.setProperty("adventure.journal.dir", "");
+        properties.setProperty("adventure.eviction.idleSeconds", "0");
+        properties.setProperty("adventure.eviction.maxResident", "0");
+        return new ServerConfig(properties);
+    }
+
+    private World defaultWorld() {
+        try {
+            return Adventure.loadWorld(MAP_PATH, loadProgress);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Leaderboard openLeaderboard(ServerConfig config) {
+        try {
+            return new Leaderboard(config.getLeaderboardFile(), config.getLeaderboardSize());
+        } catch (SQLException e) {
+            // the games still work; their scores are only kept until the server stops
+            logger.log(Level.WARNING, "Could not open leaderboard " + config.getLeaderboardFile(), e);
+            return openInMemory(config.getLeaderboardSize());
+        }
+    }
+
+    private static Leaderboard openInMemory(int size) {
+        try {
+            return new Leaderboard(null, size);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e); // no file, so nothing can fail
+        }
+    }
 
     /**
      * Clear out any instances of your adventure game,
@@ -17,83 +129,104 @@ public class myAdventureService implements AdventureService {
      */
     @Override
     public void reset() {
-        id = -1;
-        adventures.clear();
+        if (store == null) {
+            adventures.clear();
+        } else {
+            try {
+                store.reset(adventures::clear);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not journal the reset", e);
+            }
+        }
+        if (evictor != null) {
+            evictor.clear();
+        }
     }
 
     @Override
     public int newGame() throws AdventureException, FileNotFoundException {
-        id += 1;
-        Adventure adventure = new Adventure();
-        String data = "src/main/java/student/myAdventureMap.json";
-        ByteArrayInputStream input = new ByteArrayInputStream(data.getBytes());
-        adventure.loadData(input, id);
-        adventures.add(adventure);
+        // the map is parsed once and shared; a new game only gets its own position, items and inventory
+        World world = Adventure.loadWorld(MAP_PATH, loadProgress);
 
-        if (id < 0) {
-            throw new AdventureException("Invalid ID");
+        try {
+            if (store != null) {
+                return store.newGame(0);
+            }
+            return adventures.add(id -> new GameSession(id, new Adventure(world, id, historyCapacity), leaderboard));
+        } catch (IllegalStateException e) {
+            throw new AdventureException("Invalid ID", e);
+        } catch (IOException e) {
+            throw new AdventureException("Could not journal the new game", e);
+        }
+    }
+
+    @Override
+    public InstanceRange newGames(int count, Layout layout) throws AdventureException, FileNotFoundException {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+
+        // every game of the batch shares one world, compiled once
+        World world;
+        if (layout == null) {
+            world = Adventure.loadWorld(MAP_PATH, loadProgress);
+        } else {
+            long start = System.nanoTime();
+            List<String> errors = LayoutValidator.validate(layout);
+            if (!errors.isEmpty()) {
+                throw new IllegalArgumentException(LayoutValidator.describe(errors));
+            }
+            long validated = System.nanoTime();
+            world = World.compile(layout);
+            metrics.loadPhase("validate", validated - start);
+            metrics.loadPhase("compile", System.nanoTime() - validated);
         }
 
-        return id;
+        try {
+            int first;
+            if (store != null) {
+                first = layout == null ? store.newGames(count, 0) : store.newGames(count, layout, world);
+            } else {
+                first = adventures.addAll(count,
+                        id -> new GameSession(id, new Adventure(world, id, historyCapacity), leaderboard));
+            }
+            return new InstanceRange(first, count);
+        } catch (IllegalStateException e) {
+            throw new AdventureException("Invalid ID", e);
+        } catch (IOException e) {
+            throw new AdventureException("Could not journal the new games", e);
+        }
     }
 
     /**
      * Returns the state of the game instance associated with the given ID.
      * @param id the instance id
-     * @return the current state of the game
+     * @return the current state of the game, or null if there is no game with that ID
      */
     @Override
     public GameStatus getGame(int id) {
-        boolean error = false;
-        String message;
-
         if (id < 0) {
             throw new IllegalArgumentException("Invalid ID");
         }
 
-        Adventure adventure = Adventure.findInstanceWithID(adventures, id);
-        HashMap<String, List<String>> commandOptions = new HashMap<>();
-        List<String> history = new ArrayList<>();
-        String videoUrl = adventure.getLayout().getVideoUrl();
-
-        try {
-            if (commands[0] != null && commands[0].equals("history")) {
-                message = "you've visited: " + adventure.getHistory();
-            } else {
-                message = adventure.getCurrentRoomObject().getDescription();
-
-            }
-        } catch (Exception e) {
-            error = true;
-            message = "";
+        GameSession session = adventures.get(id);
+        if (session == null) {
+            return null;
         }
+        return session.getStatus();
+    }
 
-        history.add("Visited Locations");
-
-        commandOptions.put("go", adventure.getDirections());
-        commandOptions.put("history", history);
-        commandOptions.put("take", Arrays.asList(adventure.getCurrentRoomObject().getItems()));
-        commandOptions.put("drop", adventure.getInventory());
-
-        String imageUrl = adventure.getCurrentRoomObject().getImage();
-        AdventureState state = new AdventureState();
-
-        String currentRoom = adventure.getCurrentRoom();
-        String endingRoom = adventure.getLayout().getEndingRoom();
-        if (currentRoom.equals(endingRoom)) {
-            videoUrl = null;
-            commandOptions = new HashMap<>();
+    @Override
+    public HistoryPage getHistory(int id, long fromVisit, int limit) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid ID");
         }
-        GameStatus newGameStatus = new GameStatus(
-                error,
-                id,
-                message,
-                imageUrl,
-                videoUrl,
-                state,
-                commandOptions);
 
-        return newGameStatus;
+        GameSession session = adventures.get(id);
+        if (session == null) {
+            return null;
+        }
+        return session.getHistory(fromVisit, limit);
     }
 
     @Override
@@ -102,13 +235,19 @@ public class myAdventureService implements AdventureService {
             throw new IllegalArgumentException("Invalid ID");
         }
 
-        Adventure adventure = Adventure.findInstanceWithID(adventures, id);
-        if (adventure == null) {
+        GameSession session = adventures.remove(id);
+        if (session == null) {
             return false;
-        } else {
-            adventures.remove(adventure);
-            return true;
         }
+        session.discard();
+        if (store != null) {
+            try {
+                store.destroyed(id, session.getWorldNo());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not journal that game " + id + " was destroyed", e);
+            }
+        }
+        return true;
     }
 
     @Override
@@ -117,16 +256,56 @@ public class myAdventureService implements AdventureService {
             throw new IllegalArgumentException("Invalid ID");
         }
 
-        Adventure adventure = Adventure.findInstanceWithID(adventures, id);
+        GameSession session = adventures.get(id);
+        if (session == null) {
+            return;
+        }
+
+        // each game runs its own commands one at a time; different games run in parallel
+        session.execute(command);
+        metrics.command(command);
+    }
 
-        commands[0] = command.getCommandName().toLowerCase();
-        commands[1] = command.getCommandValue().toLowerCase();
+    @Override
+    public BatchResult executeCommands(int id, List<Command> commands, BatchResult.StopOn stopOn) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid ID");
+        }
 
-        adventure.startGameV2(commands, adventure);
+        GameSession session = adventures.get(id);
+        if (session == null) {
+            return null;
+        }
+        BatchResult result = session.executeBatch(commands, stopOn);
+        for (int i = 0; i < result.getResults().size(); i++) {
+            metrics.command(commands.get(i));
+        }
+        return result;
     }
 
     @Override
     public SortedMap<String, Integer> fetchLeaderboard() {
-        return null;
+        return leaderboard.getTop();
+    }
+
+    @Override
+    public EvictionStats getEvictionStats() {
+        if (evictor == null) {
+            return new EvictionStats(false, adventures.size(), 0, 0, 0, 0, 0, 0);
+        }
+        return evictor.getStats();
+    }
+
+    @Override
+    public EngineStats getEngineStats() {
+        return metrics.getStats(adventures.size(), Adventure.getLoadNanos(MAP_PATH));
+    }
+
+    /**
+     * Spills idle games now instead of waiting for the next sweep.
+     * @return the number of games spilled
+     */
+    int evictIdleGames() {
+        return evictor == null ? 0 : evictor.sweep();
     }
 }
@@ -0,0 +1,74 @@
+package student.tools;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import student.metrics.LatencyHistogram;
+import student.server.AdventureResource;
+import student.server.AdventureServer;
+import student.server.ExecutionModel;
+import student.server.ServerConfig;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput and latency of the server under each execution model.
+ *
+ * For every model the server is started in this process with the scenario's settings and that model, and
+ * the scenario is run against it by LoadGenerator. The run ends with one line per model: the requests per
+ * second and the p50, p99 and p99.9 latency of all operations.
+ *
+ * Usage: ExecutionBenchmark [scenario-file] [key=value ...], e.g.
+ * "ExecutionBenchmark src/main/resources/scenarios/execution.properties clients=64 models=fixed,virtual".
+ * The scenario defaults to execution.properties; "models" lists the models to compare, by default every
+ * one. The scenario's target must be in-process.
+ */
+public final class ExecutionBenchmark {
+    private static final String DEFAULT_SCENARIO = "src/main/resources/scenarios/execution.properties";
+
+    private ExecutionBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean named = args.length > 0 && args[0].indexOf('=') < 0;
+        Properties properties = LoadGenerator.settings(new File(named ? args[0] : DEFAULT_SCENARIO), args,
+                named ? 1 : 0);
+        List<ExecutionModel> models = new ArrayList<>();
+        for (String model : properties.getProperty("models", "default,fixed,virtual").split(",")) {
+            models.add(ExecutionModel.fromString(model.trim()));
+        }
+        Scenario scenario = new Scenario(properties);
+        if (scenario.target != null) {
+            throw new IllegalArgumentException("ExecutionBenchmark starts its own server; target must be in-process");
+        }
+        LoadGenerator.prepareClients(scenario);
+
+        System.out.printf("%-8s %8s %12s %10s %10s %10s %8s%n",
+                "model", "clients", "requests/s", "p50 us", "p99 us", "p99.9 us", "errors");
+        for (ExecutionModel model : models) {
+            scenario.serverSettings.setProperty("adventure.server.executor", model.name());
+            ServerConfig config = LoadGenerator.inProcessConfig(scenario);
+            HttpServer server = AdventureServer.createServer(AdventureResource.class, config);
+            server.start();
+            try {
+                LoadGenerator generator = new LoadGenerator(scenario, Requests.baseUrl(config));
+                if (generator.run()) {
+                    print(model, scenario, generator.getTotal(), generator.getErrors());
+                }
+            } finally {
+                server.shutdownNow();
+            }
+        }
+    }
+
+    private static void print(ExecutionModel model, Scenario scenario, LatencyHistogram latencies, long errors) {
+        System.out.printf("%-8s %8d %12.0f %10d %10d %10d %8d%n",
+                model.name().toLowerCase(), scenario.clients, latencies.getCount() / (double) scenario.durationSeconds,
+                TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99.9)),
+                errors);
+    }
+}
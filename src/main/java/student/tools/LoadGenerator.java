@@ -0,0 +1,256 @@
+package student.tools;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import student.metrics.LatencyHistogram;
+import student.server.AdventureResource;
+import student.server.AdventureServer;
+import student.server.ServerConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the end-to-end capacity of the server with a scenario file, see Scenario.
+ *
+ * The games of the scenario are created through "create", then every client sends the operation mix to
+ * random games until the run ends. Latencies after the warm-up go into a histogram per operation, and
+ * the run ends with the throughput and p50, p99 and p99.9 latency of each operation and of all of them.
+ *
+ * Usage: LoadGenerator scenario-file [key=value ...], e.g.
+ * "LoadGenerator src/main/resources/scenarios/mixed.properties clients=64". Settings after the file
+ * replace the ones in it. ExecutionBenchmark runs a scenario the same way under each execution model.
+ */
+public final class LoadGenerator {
+    private final Scenario scenario;
+    private final String base;
+    private final Map<Scenario.Operation, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final Map<Scenario.Operation, AtomicLong> errors = new LinkedHashMap<>();
+
+    /**
+     * @param scenario the run
+     * @param base the URL of the API, ending with "/"
+     */
+    LoadGenerator(Scenario scenario, String base) {
+        this.scenario = scenario;
+        this.base = base;
+        for (Scenario.Operation operation : scenario.operations) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: LoadGenerator scenario-file [key=value ...]");
+            System.exit(2);
+        }
+        Scenario scenario = new Scenario(settings(new File(args[0]), args, 1));
+        prepareClients(scenario);
+
+        HttpServer server = null;
+        String base = scenario.target;
+        if (base == null) {
+            ServerConfig config = inProcessConfig(scenario);
+            server = AdventureServer.createServer(AdventureResource.class, config);
+            server.start();
+            base = Requests.baseUrl(config);
+        }
+        try {
+            System.out.printf("%s: %d games, %d clients, %d s after %d s of warm-up, against %s%n",
+                    args[0], scenario.instances, scenario.clients, scenario.durationSeconds,
+                    scenario.warmupSeconds, scenario.target == null ? "a server in this process" : base);
+            LoadGenerator generator = new LoadGenerator(scenario, base);
+            if (generator.run()) {
+                generator.report();
+            }
+        } finally {
+            if (server != null) {
+                server.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Reads a scenario file and the settings given after it, which replace the ones in the file.
+     * @param file the scenario file
+     * @param args the command line
+     * @param first the first key=value argument
+     * @return the settings, to be passed to the Scenario constructor
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if an argument is not key=value
+     */
+    static Properties settings(File file, String[] args, int first) throws IOException {
+        Properties properties = Scenario.read(file);
+        for (int i = first; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 1) {
+                throw new IllegalArgumentException("Expected key=value, not \"" + args[i] + "\"");
+            }
+            properties.setProperty(args[i].substring(0, equals), args[i].substring(equals + 1));
+        }
+        return properties;
+    }
+
+    /**
+     * Keeps a connection open for every client and accepts the server's self-signed certificate.
+     */
+    static void prepareClients(Scenario scenario) throws GeneralSecurityException {
+        System.setProperty("http.maxConnections", Integer.toString(scenario.clients));
+        Requests.trustEveryone();
+    }
+
+    /**
+     * The settings of a server started in this process: system properties, then the scenario's own. The
+     * access log goes to a temporary file unless the scenario says otherwise, to keep the console
+     * readable.
+     *
+     * The game service of AdventureResource reads its settings from system properties when the class is
+     * first used, so the settings are made system properties too, before the server takes a request.
+     */
+    static ServerConfig inProcessConfig(Scenario scenario) throws IOException {
+        for (String key : scenario.serverSettings.stringPropertyNames()) {
+            System.setProperty(key, scenario.serverSettings.getProperty(key));
+        }
+        if (System.getProperty("adventure.accessLog.file") == null) {
+            File accessLog = File.createTempFile("loadgenerator-access", ".log");
+            accessLog.deleteOnExit();
+            System.setProperty("adventure.accessLog.file", accessLog.getPath());
+        }
+        return ServerConfig.fromSystemProperties();
+    }
+
+    /**
+     * Creates the games of the scenario, then plays the operation mix on them until the run ends.
+     * @return false if not every game could be created, in which case nothing was measured
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    boolean run() throws InterruptedException {
+        int[] ids = new int[scenario.instances];
+        AtomicLong createErrors = new AtomicLong();
+        inParallel(client -> {
+            for (int i = client; i < ids.length; i += scenario.clients) {
+                ids[i] = create(createErrors);
+            }
+        });
+        if (createErrors.get() > 0) {
+            System.out.println("Could not create " + createErrors.get() + " of the games; stopping");
+            return false;
+        }
+
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(scenario.warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(scenario.durationSeconds);
+        inParallel(client -> play(new Random(scenario.seed * 1_000_003 + client), ids, warmupEnd, end));
+        return true;
+    }
+
+    /**
+     * Runs a task on every client thread and waits for all of them.
+     */
+    private void inParallel(ClientTask task) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(scenario.clients);
+        for (int c = 0; c < scenario.clients; c++) {
+            final int client = c;
+            Thread thread = new Thread(() -> {
+                try {
+                    task.run(client);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + c);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+    }
+
+    private int create(AtomicLong createErrors) {
+        try {
+            return Requests.createGame(base);
+        } catch (IOException e) {
+            createErrors.incrementAndGet();
+            return -1;
+        }
+    }
+
+    private void play(Random random, int[] ids, long warmupEnd, long end) {
+        while (System.nanoTime() < end) {
+            Scenario.Operation operation = scenario.pick(random);
+            int id = ids[random.nextInt(ids.length)];
+            long start = System.nanoTime();
+            try {
+                Requests.send(base + operation.path(id), operation.method, operation.json);
+                if (start >= warmupEnd) {
+                    latencies.get(operation).recordSince(start);
+                }
+            } catch (IOException e) {
+                if (start >= warmupEnd) {
+                    errors.get(operation).incrementAndGet();
+                }
+            }
+            if (scenario.thinkMillis > 0) {
+                try {
+                    Thread.sleep(scenario.thinkMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the latencies of every operation after the warm-up
+     */
+    LatencyHistogram getTotal() {
+        LatencyHistogram total = new LatencyHistogram();
+        for (LatencyHistogram histogram : latencies.values()) {
+            total.add(histogram);
+        }
+        return total;
+    }
+
+    /**
+     * @return the requests after the warm-up that failed, of every operation
+     */
+    long getErrors() {
+        long total = 0;
+        for (AtomicLong failed : errors.values()) {
+            total += failed.get();
+        }
+        return total;
+    }
+
+    /**
+     * Prints the throughput and latencies of each operation and of all of them.
+     */
+    void report() {
+        System.out.printf("%-12s %10s %12s %10s %10s %10s %10s %8s%n",
+                "operation", "requests", "requests/s", "p50 us", "p99 us", "p99.9 us", "max us", "errors");
+        for (Scenario.Operation operation : scenario.operations) {
+            print(operation.name, latencies.get(operation), errors.get(operation).get());
+        }
+        print("total", getTotal(), getErrors());
+    }
+
+    private void print(String name, LatencyHistogram histogram, long failed) {
+        System.out.printf("%-12s %10d %12.0f %10d %10d %10d %10d %8d%n",
+                name, histogram.getCount(), histogram.getCount() / (double) scenario.durationSeconds,
+                TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(99.9)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getMax()),
+                failed);
+    }
+
+    private interface ClientTask {
+        void run(int client);
+    }
+}
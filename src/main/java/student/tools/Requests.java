@@ -0,0 +1,124 @@
+package student.tools;
+
+import student.server.ServerConfig;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The HTTP client of the tools: blocking HttpURLConnection requests, so every client thread has one
+ * request in flight and connections are kept alive between requests.
+ */
+final class Requests {
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private Requests() {
+    }
+
+    /**
+     * Gets the URL of the API of a server started in this process: HTTPS if it has an HTTPS listener,
+     * otherwise its plaintext listener.
+     * @param config the settings the server was started with
+     * @return the URL of the API, ending with "/"
+     */
+    static String baseUrl(ServerConfig config) {
+        if (config.getPort() != 0) {
+            return "https://" + connectHost(config.getHost()) + ":" + config.getPort() + "/adventure/v1/";
+        }
+        return "http://" + connectHost(config.getPlaintextHost()) + ":" + config.getPlaintextPort()
+                + "/adventure/v1/";
+    }
+
+    /**
+     * A listener bound to every address is reached through localhost.
+     */
+    private static String connectHost(String host) {
+        return host.equals("0.0.0.0") || host.equals("::") ? "localhost" : host;
+    }
+
+    /**
+     * Sends a request and reads the whole response, so the connection can be reused.
+     * @param url the URL, http or https
+     * @param method the HTTP method
+     * @param json the request body, or null for none
+     * @return the response body
+     * @throws IOException if the request fails or the server answers with an error status
+     */
+    static String send(String url, String method, String json) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (json != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (body != null) {
+            try (InputStream in = body) {
+                byte[] buffer = new byte[8192];
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    bytes.write(buffer, 0, n);
+                }
+            }
+        }
+        if (status >= 400) {
+            throw new IOException(method + " " + url + " returned " + status);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a game on the default map.
+     * @param base the URL of the API, ending with "/"
+     * @return the ID of the game
+     * @throws IOException if the request fails or the response has no ID
+     */
+    static int createGame(String base) throws IOException {
+        Matcher matcher = ID.matcher(send(base + "create", "POST", null));
+        if (!matcher.find()) {
+            throw new IOException("POST " + base + "create returned no game ID");
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    /**
+     * The server has a self-signed certificate, so the tools accept any certificate and host.
+     */
+    static void trustEveryone() throws GeneralSecurityException {
+        TrustManager trustAll = new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[] {trustAll}, null);
+        HttpsURLConnection.setDefaultSSLSocketFactory(context.getSocketFactory());
+        HttpsURLConnection.setDefaultHostnameVerifier((host, session) -> true);
+    }
+}
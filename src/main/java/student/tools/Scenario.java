@@ -0,0 +1,201 @@
+package student.tools;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import student.adventure.Json;
+import student.server.Command;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * A load test run, read from a properties file so the same run can be repeated:
+ *
+ * <pre>
+ * target=in-process          # or a base URL such as https://localhost:8080/adventure/v1/
+ * instances=100              # games created before the run
+ * clients=32                 # concurrent clients, each with one request in flight
+ * warmupSeconds=5            # not measured
+ * durationSeconds=30         # measured
+ * thinkMillis=0              # pause of a client between requests
+ * seed=1                     # the same seed picks the same games and operations
+ * operation.look=40 status   # name=weight and "status", "history" or "command name [value]"
+ * operation.east=20 command go East
+ * adventure.journal.dir=     # adventure.* settings of an in-process server
+ * </pre>
+ *
+ * Every request, a client picks a random game and a random operation by weight.
+ */
+final class Scenario {
+    /**
+     * Base URL of the server, ending in "/", or null to start the server in this process.
+     */
+    final String target;
+    final int instances;
+    final int clients;
+    final int warmupSeconds;
+    final int durationSeconds;
+    final int thinkMillis;
+    final long seed;
+    /**
+     * The operations, sorted by name, so a seed picks the same ones whatever order the file has them in.
+     */
+    final List<Operation> operations;
+    /**
+     * The adventure.* settings, for a server started in this process.
+     */
+    final Properties serverSettings = new Properties();
+
+    private final int totalWeight;
+
+    /**
+     * @param properties the scenario
+     * @throws IllegalArgumentException if a setting or operation is not valid
+     */
+    Scenario(Properties properties) {
+        String url = properties.getProperty("target", "in-process").trim();
+        target = url.equals("in-process") ? null : (url.endsWith("/") ? url : url + "/");
+        instances = intValue(properties, "instances", 100);
+        clients = intValue(properties, "clients", 32);
+        warmupSeconds = intValue(properties, "warmupSeconds", 5);
+        durationSeconds = intValue(properties, "durationSeconds", 30);
+        thinkMillis = intValue(properties, "thinkMillis", 0);
+        seed = intValue(properties, "seed", 1);
+
+        List<Operation> parsed = new ArrayList<>();
+        int weights = 0;
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("operation.")) {
+                Operation operation = Operation.parse(key.substring("operation.".length()), properties.getProperty(key));
+                parsed.add(operation);
+                weights += operation.weight;
+            } else if (key.startsWith("adventure.")) {
+                serverSettings.setProperty(key, properties.getProperty(key));
+            }
+        }
+        parsed.sort((a, b) -> a.name.compareTo(b.name));
+        operations = Collections.unmodifiableList(parsed);
+        totalWeight = weights;
+
+        if (instances < 1 || clients < 1 || durationSeconds < 1) {
+            throw new IllegalArgumentException("instances, clients and durationSeconds must be positive");
+        }
+        if (warmupSeconds < 0 || thinkMillis < 0) {
+            throw new IllegalArgumentException("warmupSeconds and thinkMillis can't be negative");
+        }
+        if (totalWeight == 0) {
+            throw new IllegalArgumentException("A scenario needs at least one operation with a weight");
+        }
+    }
+
+    /**
+     * @param file a scenario file
+     * @return the settings in the file, to be passed to the constructor
+     * @throws IOException if the file can't be read
+     */
+    static Properties read(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    /**
+     * @param random the random numbers of one client
+     * @return an operation, picked by weight
+     */
+    Operation pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Operation operation : operations) {
+            ticket -= operation.weight;
+            if (ticket < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("The weights add up to " + totalWeight);
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a whole number, not \"" + value + "\"", e);
+        }
+    }
+
+    /**
+     * One kind of request of the mix.
+     */
+    static final class Operation {
+        final String name;
+        final int weight;
+        /**
+         * The HTTP method, and the path after "instance/{id}".
+         */
+        final String method;
+        final String suffix;
+        /**
+         * The request body, or null for none.
+         */
+        final String json;
+
+        private Operation(String name, int weight, String method, String suffix, String json) {
+            this.name = name;
+            this.weight = weight;
+            this.method = method;
+            this.suffix = suffix;
+            this.json = json;
+        }
+
+        /**
+         * @param name the name of the operation
+         * @param spec e.g. "40 status", "5 history" or "20 command take frontdoor key"
+         */
+        static Operation parse(String name, String spec) {
+            String[] words = spec.trim().split("\\s+", 4);
+            int weight;
+            try {
+                weight = Integer.parseInt(words[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("operation." + name + " must start with a weight", e);
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("operation." + name + " has a negative weight");
+            }
+
+            String kind = words.length > 1 ? words[1] : "";
+            if (kind.equals("status") && words.length == 2) {
+                return new Operation(name, weight, "GET", "", null);
+            }
+            if (kind.equals("history") && words.length == 2) {
+                return new Operation(name, weight, "GET", "/history", null);
+            }
+            if (kind.equals("command") && words.length > 2) {
+                Command command = new Command(words[2], words.length > 3 ? words[3] : "");
+                try {
+                    return new Operation(name, weight, "POST", "/command", Json.writerFor(Command.class).writeValueAsString(command));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e); // a command is two strings
+                }
+            }
+            throw new IllegalArgumentException("operation." + name + " must be a weight and \"status\", "
+                    + "\"history\" or \"command name [value]\", not \"" + spec + "\"");
+        }
+
+        /**
+         * @param id a game instance
+         * @return the path of the request, relative to the base URL
+         */
+        String path(int id) {
+            return "instance/" + id + suffix;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package student.tools;
+
+import student.adventure.Adventure;
+import student.adventure.CommandTable;
+import student.adventure.CommandType;
+import student.adventure.World;
+import student.metrics.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of the game engine alone, with no HTTP, JSON or console in the way.
+ *
+ * A transcript is a text file of commands as a player would type them, one per line; blank lines and
+ * lines starting with "#" are skipped. The driver plays the given number of sessions on a thread pool,
+ * each a new Adventure in one shared world running one transcript from the top until the game is won,
+ * quit or the transcript ends. Transcripts are taken in turn. After the warm-up sessions it reports the
+ * sessions and commands per second and the latency of each kind of command.
+ *
+ * Usage: TranscriptDriver transcript-file-or-directory... [key=value ...], e.g.
+ * "TranscriptDriver src/main/resources/transcripts sessions=100000 threads=8". A directory stands for the
+ * .txt files in it. Settings: map (the map file, default the bundled map), sessions (default 10000),
+ * warmup (sessions played first and not measured, default a tenth of sessions), threads (default one
+ * per processor) and minRate (the fewest sessions per second that pass; below it the driver exits with
+ * status 1, default 0).
+ */
+public final class TranscriptDriver {
+    private static final String DEFAULT_MAP = "src/main/java/student/myAdventureMap.json";
+    private static final CommandType[] TYPES = CommandType.values();
+    private static final int UNKNOWN = TYPES.length;  // the latency slot of commands not understood
+
+    private final World world;
+    private final List<Transcript> transcripts;
+    private final int threads;
+
+    /**
+     * @param world the world every session is played in
+     * @param transcripts the transcripts to play, at least one
+     * @param threads the number of sessions played at once
+     */
+    TranscriptDriver(World world, List<Transcript> transcripts, int threads) {
+        if (transcripts.isEmpty()) {
+            throw new IllegalArgumentException("There are no transcripts to play");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.world = world;
+        this.transcripts = transcripts;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<File> files = new ArrayList<>();
+        String map = DEFAULT_MAP;
+        int sessions = 10000;
+        int warmup = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double minRate = 0;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                files.add(new File(arg));
+                continue;
+            }
+            String key = arg.substring(0, equals);
+            String value = arg.substring(equals + 1);
+            switch (key) {
+                case "map":
+                    map = value;
+                    break;
+                case "sessions":
+                    sessions = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    warmup = Integer.parseInt(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "minRate":
+                    minRate = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting \"" + key + "\"");
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: TranscriptDriver transcript-file-or-directory... [key=value ...]");
+            System.exit(2);
+        }
+
+        List<Transcript> transcripts = Transcript.readAll(files);
+        TranscriptDriver driver = new TranscriptDriver(Adventure.loadWorld(map), transcripts, threads);
+        System.out.printf("%d transcripts, %d sessions after %d of warm-up, %d threads, map %s%n",
+                transcripts.size(), sessions, warmup < 0 ? sessions / 10 : warmup, threads, map);
+
+        driver.play(warmup < 0 ? sessions / 10 : warmup);
+        Result result = driver.play(sessions);
+        result.print();
+        if (result.getSessionRate() < minRate) {
+            System.out.printf("%.0f sessions/s is below minRate=%.0f%n", result.getSessionRate(), minRate);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays sessions on a new pool of threads and waits for all of them.
+     * @param sessions the number of sessions to play
+     * @return what the sessions did and how long their commands took
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Result play(int sessions) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "transcript-driver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Callable<Result>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(() -> {
+                // each worker keeps its own counters, so recording never contends with other workers
+                Result result = new Result();
+                for (int session = next.getAndIncrement(); session < sessions; session = next.getAndIncrement()) {
+                    playSession(session, result);
+                }
+                return result;
+            });
+        }
+
+        long start = System.nanoTime();
+        try {
+            Result total = new Result();
+            for (Future<Result> worker : pool.invokeAll(workers)) {
+                total.add(worker.get());
+            }
+            total.nanos = System.nanoTime() - start;
+            return total;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A session failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void playSession(int session, Result result) {
+        Transcript transcript = transcripts.get(session % transcripts.size());
+        Adventure adventure = new Adventure(world, session);
+        for (int i = 0; i < transcript.commands.length; i++) {
+            long start = System.nanoTime();
+            String outcome = adventure.execute(transcript.commands[i]);
+            result.latencies[transcript.types[i]].recordSince(start);
+            result.commands++;
+            if (Adventure.isFailure(outcome)) {
+                result.failures++;
+            }
+            if (Adventure.isWin(outcome)) {
+                result.wins++;
+                break;
+            }
+            if (transcript.types[i] == CommandType.QUIT.ordinal()) {
+                break;
+            }
+        }
+        result.sessions++;
+    }
+
+    /**
+     * The commands of one transcript file, with the kind of each looked up ahead of time for the report.
+     */
+    static final class Transcript {
+        final String name;
+        final String[] commands;
+        final int[] types;  // CommandType ordinals, or UNKNOWN
+
+        Transcript(String name, List<String> lines) {
+            List<String> commands = new ArrayList<>();
+            for (String line : lines) {
+                String command = line.trim();
+                if (!command.isEmpty() && !command.startsWith("#")) {
+                    commands.add(command);
+                }
+            }
+            this.name = name;
+            this.commands = commands.toArray(new String[0]);
+            this.types = new int[this.commands.length];
+            for (int i = 0; i < types.length; i++) {
+                String command = this.commands[i];
+                int verbStart = CommandTable.skipSeparators(command, 0);
+                CommandType type = CommandTable.lookup(command, verbStart, CommandTable.skipWord(command, verbStart));
+                types[i] = type == null ? UNKNOWN : type.ordinal();
+            }
+        }
+
+        /**
+         * @param file a transcript file
+         * @return the transcript in the file
+         * @throws IOException if the file can't be read
+         */
+        static Transcript read(File file) throws IOException {
+            return new Transcript(file.getName(), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @param files transcript files, or directories of .txt transcript files
+         * @return the transcripts, those of a directory in name order
+         * @throws IOException if a file can't be read
+         */
+        static List<Transcript> readAll(List<File> files) throws IOException {
+            List<Transcript> transcripts = new ArrayList<>();
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    File[] inside = file.listFiles((dir, name) -> name.endsWith(".txt"));
+                    if (inside == null) {
+                        throw new IOException("Could not list " + file);
+                    }
+                    Arrays.sort(inside);
+                    for (File transcript : inside) {
+                        transcripts.add(read(transcript));
+                    }
+                } else {
+                    transcripts.add(read(file));
+                }
+            }
+            return transcripts;
+        }
+    }
+
+    /**
+     * What a run of sessions did, and the latency of its commands by kind.
+     */
+    static final class Result {
+        final LatencyHistogram[] latencies = new LatencyHistogram[UNKNOWN + 1];
+        long sessions;
+        long commands;
+        long wins;
+        long failures;  // commands that were not understood or could not be done
+        long nanos;
+
+        Result() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        void add(Result other) {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].add(other.latencies[i]);
+            }
+            sessions += other.sessions;
+            commands += other.commands;
+            wins += other.wins;
+            failures += other.failures;
+        }
+
+        double getSessionRate() {
+            return sessions * 1e9 / Math.max(1, nanos);
+        }
+
+        void print() {
+            System.out.printf("%10s %10s %12s %12s %8s %10s%n",
+                    "sessions", "seconds", "sessions/s", "commands/s", "wins", "failures");
+            System.out.printf("%10d %10.2f %12.0f %12.0f %8d %10d%n", sessions, nanos / 1e9, getSessionRate(),
+                    commands * 1e9 / Math.max(1, nanos), wins, failures);
+
+            System.out.printf("%-10s %10s %10s %10s %10s %10s %10s%n",
+                    "command", "count", "mean ns", "p50 ns", "p99 ns", "p99.9 ns", "max ns");
+            LatencyHistogram total = new LatencyHistogram();
+            for (int i = 0; i < latencies.length; i++) {
+                if (latencies[i].getCount() > 0) {
+                    print(i == UNKNOWN ? "unknown" : TYPES[i].name().toLowerCase(), latencies[i]);
+                    total.add(latencies[i]);
+                }
+            }
+            print("total", total);
+        }
+
+        private static void print(String name, LatencyHistogram histogram) {
+            System.out.printf("%-10s %10d %10.0f %10d %10d %10d %10d%n",
+                    name, histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+                    histogram.getPercentile(99), histogram.getPercentile(99.9), histogram.getMax());
+        }
+    }
+}
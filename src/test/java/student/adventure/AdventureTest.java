@@ -1,5 +1,6 @@
 package student.adventure;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import org.junit.Before;
 import org.junit.Test;
@@ -70,6 +71,35 @@ public class AdventureTest {
         assertEquals(expected, evaluated);
     }
 
+    @Test
+    public void executeLine() {
+        String evaluated = adventure.execute("  GO   East ");
+
+        assertEquals("keep going", evaluated);
+        assertEquals("SiebelEntry", adventure.getCurrentRoom());
+    }
+
+    @Test
+    public void executeLineMultiWordValue() {
+        adventure.execute("take  FrontDoor   key");
+
+        assertEquals(asList("frontdoor key"), adventure.getInventory());
+    }
+
+    @Test
+    public void verbContainingGo() {
+        String evaluated = adventure.execute("ago east");
+
+        assertEquals("I don't understand \"ago east\"!", evaluated);
+    }
+
+    @Test
+    public void verbWithoutValue() {
+        String evaluated = adventure.execute("go");
+
+        assertEquals("I don't understand \"go\"!", evaluated);
+    }
+
     @Test
     public void undefinedCommand() {
         String[] input = {"fly to the sky"};
@@ -192,6 +222,16 @@ public class AdventureTest {
         assertEquals(expected, evaluated);
     }
 
+    @Test
+    public void takeItemSharedWorld() {
+        // another game in the same world should still see the hamburger
+        Adventure other = new Adventure(adventure.getWorld(), 1);
+        adventure.pickItem("hamburger");
+
+        assertEquals(asList("frontdoor key", "backdoor key"), adventure.getCurrentRoomItems());
+        assertEquals(asList("frontdoor key", "backdoor key", "hamburger"), other.getCurrentRoomItems());
+    }
+
     @Test
     public void takeInvalidItem() {
         // pick unavailable item zebra
@@ -363,6 +403,62 @@ public class AdventureTest {
         assertEquals(expected, evaluated);
     }
 
+    @Test
+    public void roomTextFollowsItems() {
+        String separator = System.lineSeparator();
+        String before = adventure.getRoomText();
+        adventure.pickItem("hamburger");
+
+        String after = adventure.getRoomText();
+
+        assertEquals("You are on Matthews, outside the Siebel Center" + separator +
+                "From here you can go: East, West or South" + separator +
+                "Items visible: frontdoor key, backdoor key or hamburger" + separator, before);
+        assertEquals("You are on Matthews, outside the Siebel Center" + separator +
+                "From here you can go: East, West or South" + separator +
+                "Items visible: frontdoor key or backdoor key" + separator, after);
+        assertEquals(after, adventure.getRoomText());
+    }
+
+    @Test
+    public void roomTextFollowsPlayer() {
+        String matthews = adventure.getRoomText();
+        adventure.goNextRoom("east");
+        adventure.goNextRoom("west");
+
+        assertEquals(matthews, adventure.getRoomText());
+    }
+
+    @Test
+    public void roomInformationToWriter() throws IOException {
+        StringWriter out = new StringWriter();
+
+        adventure.printRoomInformation(out);
+
+        assertEquals(adventure.getRoomText(), out.toString());
+    }
+
+    @Test
+    public void listNames() {
+        assertEquals("", RoomText.list(asList()));
+        assertEquals("East", RoomText.list(asList("East")));
+        assertEquals("East or West", RoomText.list(asList("East", "West")));
+        assertEquals("East, West or South", RoomText.list(asList("East", "West", "South")));
+    }
+
+    @Test
+    public void startGameReadsEveryLineOfOneStream() {
+        InputStream commands = new ByteArrayInputStream("take hamburger\ngo East\n".getBytes());
+        outputHere = voidOutput();
+
+        String took = adventure.startGame(commands, "Start the Game", adventure);
+        String went = adventure.startGame(commands, took, adventure);
+
+        putBackStreamer();
+        assertEquals("Took an item", took);
+        assertEquals("keep going", went);
+    }
+
     /**
      * Helper functions
      */
@@ -0,0 +1,107 @@
+package student.adventure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class LayoutValidatorTest {
+    private static Layout.Room room(String name, String... targets) {
+        Layout.Room.Direction[] directions = new Layout.Room.Direction[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            directions[i] = new Layout.Room.Direction("Dir" + i, targets[i]);
+        }
+        return new Layout.Room(name, "The " + name, directions, new String[0], null);
+    }
+
+    private static Layout ring(int size) {
+        Layout.Room[] rooms = new Layout.Room[size];
+        for (int i = 0; i < size; i++) {
+            rooms[i] = room("Room" + i, "Room" + (i + 1) % size);
+        }
+        return new Layout("Room0", "Room" + (size - 1), null, rooms);
+    }
+
+    @Test
+    public void validLayout() {
+        assertEquals(0, LayoutValidator.validate(ring(3)).size());
+    }
+
+    @Test
+    public void danglingDirection() {
+        Layout layout = new Layout("A", "B", null, new Layout.Room[] {room("A", "B"), room("B", "Nowhere")});
+        List<String> errors = LayoutValidator.validate(layout);
+
+        assertEquals(1, errors.size());
+        assertEquals("Room 1 (B): direction \"Dir0\" points to unknown room \"Nowhere\"", errors.get(0));
+    }
+
+    @Test
+    public void unknownStartingRoom() {
+        Layout layout = new Layout("C", "B", null, new Layout.Room[] {room("A", "B"), room("B", "A")});
+        List<String> errors = LayoutValidator.validate(layout);
+
+        assertEquals(1, errors.size());
+        assertEquals("startingRoom \"C\" is not a room of the layout", errors.get(0));
+    }
+
+    @Test
+    public void collectsEveryError() {
+        Layout.Room noDescription = new Layout.Room("B", "", new Layout.Room.Direction[0], null, null);
+        Layout layout = new Layout("A", null, null,
+                new Layout.Room[] {room("A", "B", "X"), noDescription, room("A", "B")});
+        List<String> errors = LayoutValidator.validate(layout);
+
+        assertEquals(5, errors.size());
+        assertTrue(errors.contains("endingRoom is missing"));
+        assertTrue(errors.contains("Room 2 (A) has the same name as room 0"));
+        assertTrue(errors.contains("Room 0 (A): direction \"Dir1\" points to unknown room \"X\""));
+        assertTrue(errors.contains("Room 1 (B) has no description"));
+        assertTrue(errors.contains("Room 1 (B) has no directions"));
+    }
+
+    @Test
+    public void largeLayoutInParallel() {
+        Layout layout = ring(LayoutValidator.PARALLEL_THRESHOLD * 5);
+        assertEquals(0, LayoutValidator.validate(layout).size());
+
+        layout.getRooms()[12_345] = room("Room12345", "Gone");
+        layout.getRooms()[45_678] = room("Room45678", "Lost");
+        List<String> errors = LayoutValidator.validate(layout);
+
+        assertEquals(2, errors.size());
+        assertTrue(errors.get(0).startsWith("Room 12345 "));
+        assertTrue(errors.get(1).startsWith("Room 45678 "));
+    }
+
+    @Test
+    public void errorsAreCapped() {
+        Layout layout = ring(LayoutValidator.MAX_ERRORS * 2);
+        for (Layout.Room room : layout.getRooms()) {
+            room.setDescription(null);
+        }
+        List<String> errors = LayoutValidator.validate(layout);
+
+        assertEquals(LayoutValidator.MAX_ERRORS + 1, errors.size());
+        assertEquals("... and 1000 more errors", errors.get(LayoutValidator.MAX_ERRORS));
+    }
+
+    @Test
+    public void invalidMapStaysInvalid() throws IOException {
+        Layout layout = new ObjectMapper()
+                .readValue(new File("src/main/java/student/myInvalid.json"), Layout.class);
+        assertTrue(LayoutValidator.validate(layout).size() > 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void builderRejectsDanglingDirection() {
+        World.Builder builder = new World.Builder().setStartingRoom("A").setEndingRoom("B");
+        builder.addRoom("A", "The A", null, new String[] {"East"}, new String[] {"B"}, new String[0]);
+        builder.addRoom("B", "The B", null, new String[] {"West"}, new String[] {"Nowhere"}, new String[0]);
+        builder.build();
+    }
+}
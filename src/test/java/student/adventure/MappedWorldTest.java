@@ -0,0 +1,56 @@
+package student.adventure;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class MappedWorldTest {
+    private static final File MAP = new File("src/main/java/student/myAdventureMap.json");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private World heap;
+    private World mapped;
+
+    @Before
+    public void setUp() throws IOException {
+        heap = WorldLoader.load(MAP, WorldLoader.Mode.TREE, LoadProgress.NONE);
+        File compiled = folder.newFile("map.world");
+        WorldCompiler.write(heap, compiled);
+        mapped = WorldLoader.load(compiled, WorldLoader.Mode.AUTO, LoadProgress.NONE);
+    }
+
+    @Test
+    public void sameRoomsAsJson() {
+        assertEquals(heap.getRoomCount(), mapped.getRoomCount());
+        assertEquals(heap.getStartingRoomId(), mapped.getStartingRoomId());
+        assertEquals(heap.getEndingRoomId(), mapped.getEndingRoomId());
+        assertEquals(heap.getVideoUrl(), mapped.getVideoUrl());
+        for (int id = 0; id < heap.getRoomCount(); id++) {
+            assertEquals(id, mapped.getRoomId(heap.getRoomName(id)));
+            assertEquals(heap.getDescription(id), mapped.getDescription(id));
+            assertEquals(heap.getImage(id), mapped.getImage(id));
+            assertEquals(heap.getItems(id), mapped.getItems(id));
+            assertEquals(heap.getDirectionNames(id), mapped.getDirectionNames(id));
+        }
+        assertEquals(World.NO_ROOM, mapped.getRoomId("Nowhere"));
+    }
+
+    @Test
+    public void playOnMappedWorld() {
+        Adventure adventure = new Adventure(mapped, 0);
+
+        assertEquals("keep going", adventure.execute("go east"));
+        assertEquals("SiebelEntry", adventure.getCurrentRoom());
+        assertEquals("I can't go \"up\"!", adventure.execute("go up"));
+        assertEquals("Took an item", adventure.execute("take scared"));
+        assertEquals("keep going", adventure.execute("go west"));
+        assertEquals("You've made it on time to code review; you win!", adventure.execute("go south"));
+    }
+}
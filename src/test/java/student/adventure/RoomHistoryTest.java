@@ -0,0 +1,58 @@
+package student.adventure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class RoomHistoryTest {
+    @Test
+    public void keepsEverythingBelowCapacity() {
+        RoomHistory history = new RoomHistory(4);
+        history.add(7);
+        history.add(8);
+
+        assertEquals(2, history.size());
+        assertEquals(0, history.getFirstVisit());
+        assertArrayEquals(new int[]{7, 8}, history.tail(10));
+    }
+
+    @Test
+    public void dropsOldestVisitsAtCapacity() {
+        RoomHistory history = new RoomHistory(3);
+        for (int room = 0; room < 10; room++) {
+            history.add(room);
+        }
+
+        assertEquals(10, history.getVisitCount());
+        assertEquals(3, history.size());
+        assertEquals(7, history.getFirstVisit());
+        assertArrayEquals(new int[]{7, 8, 9}, history.tail(5));
+        assertArrayEquals(new int[]{8, 9}, history.tail(2));
+    }
+
+    @Test
+    public void pageSkipsVisitsNoLongerKept() {
+        RoomHistory history = new RoomHistory(3);
+        for (int room = 0; room < 10; room++) {
+            history.add(room);
+        }
+
+        assertArrayEquals(new int[]{7, 8}, history.page(0, 2));
+        assertArrayEquals(new int[]{9}, history.page(9, 2));
+        assertArrayEquals(new int[0], history.page(10, 2));
+    }
+
+    @Test
+    public void historyOfGameIsBounded() throws Exception {
+        World world = Adventure.loadWorld("src/main/java/student/myAdventureMap.json");
+        Adventure adventure = new Adventure(world, 0, 4);
+        for (int i = 0; i < 50; i++) {
+            adventure.execute("go east");
+            adventure.execute("go west");
+        }
+
+        assertEquals(101, adventure.getRoomHistory().getVisitCount());
+        assertEquals(4, adventure.getHistory().size());
+        assertEquals("MatthewsStreet", adventure.getHistory().get(3));
+    }
+}
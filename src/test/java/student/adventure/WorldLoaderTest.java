@@ -0,0 +1,102 @@
+package student.adventure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class WorldLoaderTest {
+    private static final File MAP = new File("src/main/java/student/myAdventureMap.json");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamingMatchesTree() throws IOException {
+        World tree = WorldLoader.load(MAP, WorldLoader.Mode.TREE, LoadProgress.NONE);
+        World streamed = WorldLoader.load(MAP, WorldLoader.Mode.STREAMING, LoadProgress.NONE);
+
+        assertEquals(tree.getRoomCount(), streamed.getRoomCount());
+        assertEquals(tree.getStartingRoomId(), streamed.getStartingRoomId());
+        assertEquals(tree.getEndingRoomId(), streamed.getEndingRoomId());
+        assertEquals(tree.getVideoUrl(), streamed.getVideoUrl());
+        for (int id = 0; id < tree.getRoomCount(); id++) {
+            assertEquals(tree.getRoomName(id), streamed.getRoomName(id));
+            assertEquals(tree.getDescription(id), streamed.getDescription(id));
+            assertEquals(tree.getImage(id), streamed.getImage(id));
+            assertEquals(tree.getItems(id), streamed.getItems(id));
+            assertEquals(tree.getDirectionNames(id), streamed.getDirectionNames(id));
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void streamingInvalidScheme() throws IOException {
+        WorldLoader.load(new File("src/main/java/student/myInvalid.json"), WorldLoader.Mode.STREAMING, LoadProgress.NONE);
+    }
+
+    @Test
+    public void duplicateDirectionsAreRejectedByBothLoaders() throws IOException {
+        File file = folder.newFile("twice.json");
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.print("{\"startingRoom\": \"a\", \"endingRoom\": \"b\", \"rooms\": ["
+                    + "{\"name\": \"a\", \"description\": \"A\", \"directions\": ["
+                    + "{\"directionName\": \"East\", \"room\": \"b\"}, {\"directionName\": \"east\", \"room\": \"a\"}]},"
+                    + "{\"name\": \"b\", \"description\": \"B\", \"directions\": ["
+                    + "{\"directionName\": \"West\", \"room\": \"a\"}]}]}");
+        }
+
+        for (WorldLoader.Mode mode : WorldLoader.Mode.values()) {
+            try {
+                WorldLoader.load(file, mode, LoadProgress.NONE);
+                fail(mode + " accepted a room with the same direction twice");
+            } catch (IllegalArgumentException e) {
+                assertTrue(mode + ": " + e.getMessage(), e.getMessage().contains("\"east\" appears more than once"));
+            }
+        }
+    }
+
+    @Test
+    public void streamingReportsPhases() throws IOException {
+        File file = folder.newFile("ring.json");
+        writeRing(file, 250_000);
+
+        List<String> phases = new ArrayList<>();
+        World world = WorldLoader.load(file, WorldLoader.Mode.STREAMING, new LoadProgress() {
+            @Override
+            public void phaseFinished(String phase, long rooms, long nanos) {
+                phases.add(phase + " " + rooms);
+            }
+        });
+
+        assertEquals(250_000, world.getRoomCount());
+        assertEquals(1, world.findNextRoomId(0, "next"));
+        assertEquals(0, world.findNextRoomId(249_999, "next"));
+        List<String> expected = new ArrayList<>();
+        expected.add("parse 250000");
+        expected.add("link 250000");
+        assertEquals(expected, phases);
+    }
+
+    /**
+     * Write a map whose rooms form one big loop.
+     */
+    private static void writeRing(File file, int rooms) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.print("{\"startingRoom\": \"r0\", \"endingRoom\": \"r" + (rooms - 1) + "\", \"rooms\": [");
+            for (int i = 0; i < rooms; i++) {
+                out.print(i == 0 ? "" : ",");
+                out.print("{\"name\": \"r" + i + "\", \"description\": \"Room " + i + "\", \"items\": [\"coin\"],"
+                        + " \"directions\": [{\"directionName\": \"Next\", \"room\": \"r" + (i + 1) % rooms + "\"}]}");
+            }
+            out.print("]}");
+        }
+    }
+}
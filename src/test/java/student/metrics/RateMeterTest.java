@@ -0,0 +1,39 @@
+package student.metrics;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class RateMeterTest {
+    @Test
+    public void rateCountsOnlyWholeSecondsInWindow() {
+        RateMeter meter = new RateMeter();
+        for (int i = 0; i < 30; i++) {
+            meter.mark(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            meter.mark(104);
+        }
+        meter.mark(105); // the second still going on
+
+        assertEquals(41, meter.getCount());
+        assertEquals(8.0, meter.getRate(5, 105), 0);   // 100 to 104
+        assertEquals(2.5, meter.getRate(4, 105), 0);   // 101 to 104
+        assertEquals(0.0, meter.getRate(1, 200), 0);
+    }
+
+    @Test
+    public void slotIsReusedAfterWrappingAround() {
+        RateMeter meter = new RateMeter();
+        meter.mark(1);
+        meter.mark(1);
+        meter.mark(1 + 64); // the same slot, a lap later
+
+        assertEquals(1.0, meter.getRate(1, 66), 0);
+        assertEquals(3, meter.getCount());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void windowMustFitRing() {
+        new RateMeter().getRate(RateMeter.MAX_WINDOW + 1);
+    }
+}
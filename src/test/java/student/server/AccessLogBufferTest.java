@@ -0,0 +1,90 @@
+package student.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AccessLogBufferTest {
+    @Test
+    public void firstInFirstOut() {
+        AccessLogBuffer<String> buffer = new AccessLogBuffer<>(4);
+        for (int round = 0; round < 3; round++) {
+            assertTrue(buffer.offer("a"));
+            assertTrue(buffer.offer("b"));
+            assertEquals("a", buffer.poll());
+            assertEquals("b", buffer.poll());
+            assertNull(buffer.poll());
+        }
+    }
+
+    @Test
+    public void dropsWhenFull() {
+        AccessLogBuffer<Integer> buffer = new AccessLogBuffer<>(3);
+        assertEquals(4, buffer.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        assertFalse(buffer.offer(4));
+        assertEquals(1, buffer.getDropped());
+        assertEquals(Integer.valueOf(0), buffer.poll());
+        assertTrue(buffer.offer(5));
+    }
+
+    @Test
+    public void manyProducersOneConsumer() throws Exception {
+        AccessLogBuffer<Integer> buffer = new AccessLogBuffer<>(1024);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int producer = p;
+            producers.add(pool.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    buffer.offer(producer * 50_000 + i);
+                }
+            }));
+        }
+
+        // every entry that was not dropped arrives once, and entries of one producer stay in order
+        int[] last = {-1, -1, -1, -1};
+        long taken = 0;
+        boolean done;
+        do {
+            done = allDone(producers);
+            for (Integer entry = buffer.poll(); entry != null; entry = buffer.poll()) {
+                int producer = entry / 50_000;
+                assertTrue(entry % 50_000 > last[producer]);
+                last[producer] = entry % 50_000;
+                taken++;
+            }
+        } while (!done);
+        pool.shutdown();
+
+        assertEquals(200_000, taken + buffer.getDropped());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void sampleRateOutOfRange() {
+        Properties properties = new Properties();
+        properties.setProperty("adventure.accessLog.sampleRate", "2");
+        new ServerConfig(properties);
+    }
+
+    private static boolean allDone(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
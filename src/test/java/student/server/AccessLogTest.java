@@ -0,0 +1,57 @@
+package student.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import student.adventure.Json;
+
+import java.util.Properties;
+
+public class AccessLogTest {
+    private AccessLog log;
+
+    @Before
+    public void setUp() {
+        log = new AccessLog(new ServerConfig(new Properties()));
+    }
+
+    @After
+    public void tearDown() {
+        log.close();
+    }
+
+    /**
+     * A response body Jackson can't write.
+     */
+    public static class Broken {
+        public String getValue() {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    private JsonNode format(Object response) throws Exception {
+        AccessLog.Entry entry = new AccessLog.Entry(1, "GET", "instance/3", "3", 200, 42, "", response);
+        return Json.mapper().readTree(log.format(Json.factory(), entry));
+    }
+
+    @Test
+    public void sampledResponseIsLogged() throws Exception {
+        JsonNode line = format(new Command("go", "East"));
+
+        assertEquals("3", line.get("id").asText());
+        assertTrue(line.get("response").asText().contains("\"commandValue\":\"East\""));
+    }
+
+    @Test
+    public void responseThatCantBeWrittenIsLeftOut() throws Exception {
+        JsonNode line = format(new Broken());
+
+        assertEquals(200, line.get("status").asInt());
+        assertFalse(line.has("response"));
+        assertTrue(line.get("responseUnavailable").asBoolean());
+    }
+}
@@ -0,0 +1,252 @@
+package student.server;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import student.adventure.Layout;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AdventureServiceTest {
+    private myAdventureService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new myAdventureService(new Leaderboard(null, 10));
+    }
+
+    @Test
+    public void newGameStartsAtStartingRoom() throws Exception {
+        int id = service.newGame();
+
+        GameStatus status = service.getGame(id);
+
+        assertEquals(0, id);
+        assertEquals("You are on Matthews, outside the Siebel Center", status.getMessage());
+    }
+
+    @Test
+    public void versionsStartAtBootTime() throws Exception {
+        long bootMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        long version = service.getGame(service.newGame()).getVersion();
+
+        // a version of a later process is larger than every version of this one
+        assertTrue(version >> GameSession.VERSIONS_PER_MILLI_BITS >= bootMillis - 1000);
+        assertTrue(version >> GameSession.VERSIONS_PER_MILLI_BITS <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void historyCapacityIsConfigured() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("adventure.journal.dir", "");
+        properties.setProperty("adventure.eviction.idleSeconds", "0");
+        properties.setProperty("adventure.game.historyCapacity", "2");
+        service = new myAdventureService(new Leaderboard(null, 10), new ServerConfig(properties));
+        int id = service.newGame();
+        for (int i = 0; i < 4; i++) {
+            service.executeCommand(id, new Command("go", i % 2 == 0 ? "East" : "West"));
+        }
+
+        HistoryPage history = service.getHistory(id, 0, 10);
+
+        assertEquals(5, history.getVisitCount());
+        assertEquals(asList("SiebelEntry", "MatthewsStreet"), history.getRooms());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void historyCapacityMustBePositive() {
+        Properties properties = new Properties();
+        properties.setProperty("adventure.game.historyCapacity", "0");
+        new ServerConfig(properties);
+    }
+
+    @Test
+    public void unknownGame() {
+        assertNull(service.getGame(42));
+        assertFalse(service.destroyGame(42));
+    }
+
+    @Test
+    public void historyDoesNotLeakToOtherGames() throws Exception {
+        int first = service.newGame();
+        int second = service.newGame();
+
+        service.executeCommand(first, new Command("history", ""));
+
+        assertTrue(service.getGame(first).getMessage().startsWith("you've visited: "));
+        assertEquals("You are on Matthews, outside the Siebel Center", service.getGame(second).getMessage());
+    }
+
+    @Test
+    public void statusIsSharedUntilCommand() throws Exception {
+        int id = service.newGame();
+
+        GameStatus first = service.getGame(id);
+        assertSame(first, service.getGame(id));
+
+        service.executeCommand(id, new Command("go", "East"));
+        GameStatus moved = service.getGame(id);
+
+        assertNotEquals(first.getVersion(), moved.getVersion());
+        assertEquals("You are on Matthews, outside the Siebel Center", first.getMessage());
+        assertSame(moved, service.getGame(id));
+    }
+
+    @Test
+    public void versionsNotReusedAfterReset() throws Exception {
+        int id = service.newGame();
+        long version = service.getGame(id).getVersion();
+
+        service.reset();
+
+        assertEquals(id, service.newGame());
+        assertNotEquals(version, service.getGame(id).getVersion());
+    }
+
+    @Test (expected = UnsupportedOperationException.class)
+    public void statusIsImmutable() throws Exception {
+        int id = service.newGame();
+        service.getGame(id).getCommandOptions().get("take").add("cheat");
+    }
+
+    @Test
+    public void batchStopsOnFailure() throws Exception {
+        int id = service.newGame();
+        List<Command> commands = asList(new Command("go", "East"), new Command("go", "Up"),
+                new Command("go", "West"));
+
+        BatchResult result = service.executeCommands(id, commands, BatchResult.StopOn.FAILURE);
+
+        assertEquals(3, result.getCommandCount());
+        assertEquals(2, result.getResults().size());
+        assertEquals("keep going", result.getResults().get(0).getMessage());
+        assertFalse(result.getResults().get(0).isFailed());
+        assertEquals("I can't go \"up\"!", result.getResults().get(1).getMessage());
+        assertTrue(result.getResults().get(1).isFailed());
+        assertSame(service.getGame(id), result.getStatus());
+        assertTrue(result.getStatus().getMessage().startsWith("You are in the west entry of Siebel Center."));
+    }
+
+    @Test
+    public void batchRunsPastFailures() throws Exception {
+        int id = service.newGame();
+        List<Command> commands = asList(new Command("go", "East"), new Command("take", "nothing"),
+                new Command("dance", ""), new Command("go", "West"));
+
+        BatchResult invalid = service.executeCommands(id, commands, BatchResult.StopOn.INVALID);
+        assertEquals(3, invalid.getResults().size());
+
+        BatchResult all = service.executeCommands(service.newGame(), commands, BatchResult.StopOn.NONE);
+        assertEquals(4, all.getResults().size());
+        assertEquals("You are on Matthews, outside the Siebel Center", all.getStatus().getMessage());
+    }
+
+    @Test
+    public void batchOnUnknownGame() {
+        assertNull(service.executeCommands(42, asList(new Command("go", "East")), BatchResult.StopOn.NONE));
+    }
+
+    @Test
+    public void bulkCreateSharesMap() throws Exception {
+        service.newGame();
+        InstanceRange range = service.newGames(1000, null);
+
+        assertEquals(1, range.getFirstId());
+        assertEquals(1000, range.getLastId());
+        service.executeCommand(500, new Command("take", "hamburger"));
+        assertEquals(asList("frontdoor key", "backdoor key"),
+                service.getGame(500).getCommandOptions().get("take"));
+        assertEquals(asList("frontdoor key", "backdoor key", "hamburger"),
+                service.getGame(501).getCommandOptions().get("take"));
+    }
+
+    @Test
+    public void bulkCreateWithLayout() throws Exception {
+        Layout.Room.Direction[] east = {new Layout.Room.Direction("East", "Hall")};
+        Layout.Room.Direction[] west = {new Layout.Room.Direction("West", "Porch")};
+        Layout layout = new Layout("Porch", "Hall", null, new Layout.Room[] {
+                new Layout.Room("Porch", "A porch", east, new String[0], null),
+                new Layout.Room("Hall", "A hall", west, new String[0], null)});
+
+        InstanceRange range = service.newGames(3, layout);
+
+        assertEquals("A porch", service.getGame(range.getLastId()).getMessage());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void bulkCreateWithInvalidLayout() throws Exception {
+        service.newGames(3, new Layout("Porch", "Hall", null, new Layout.Room[0]));
+    }
+
+    @Test
+    public void winRecordsScore() throws Exception {
+        int id = service.newGame();
+        service.executeCommand(id, new Command("go", "East", "alice"));
+        service.executeCommand(id, new Command("go", "West", "alice"));
+        service.executeCommand(id, new Command("go", "South", "alice"));
+        int other = service.newGame();
+        service.executeCommand(other, new Command("go", "South", "bob"));
+
+        assertEquals(asList("bob", "alice"), new ArrayList<>(service.fetchLeaderboard().keySet()));
+        assertEquals(Integer.valueOf(Leaderboard.score(3)), service.fetchLeaderboard().get("alice"));
+    }
+
+    @Test
+    public void concurrentGamesStayIndependent() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            ids.add(service.newGame());
+        }
+
+        // every game walks east and back west many times; commands of one game must never interleave
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int id : ids) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    service.executeCommand(id, new Command("go", "East"));
+                    service.executeCommand(id, new Command("go", "West"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        for (int id : ids) {
+            assertEquals("You are on Matthews, outside the Siebel Center", service.getGame(id).getMessage());
+        }
+    }
+
+    @Test
+    public void engineStatsCountCommandsByVerb() throws Exception {
+        int id = service.newGame();
+        service.executeCommand(id, new Command("go", "East"));
+        service.executeCommand(id, new Command("dance", ""));
+        service.executeCommands(id, asList(new Command("take", "nothing"), new Command("go", "West")),
+                BatchResult.StopOn.NONE);
+
+        EngineStats stats = service.getEngineStats();
+
+        assertEquals(1, stats.getLiveInstances());
+        assertEquals(2, stats.getCommands().get("go").getCount());
+        assertEquals(1, stats.getCommands().get("take").getCount());
+        assertEquals(0, stats.getCommands().get("history").getCount());
+        assertEquals(1, stats.getCommands().get("unknown").getCount());
+        assertTrue(stats.getMapLoadMillis() >= 0);
+    }
+}
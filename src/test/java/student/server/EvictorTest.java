@@ -0,0 +1,111 @@
+package student.server;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Properties;
+
+public class EvictorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File spillDir;
+
+    private myAdventureService open(int maxResident, File journalDir) throws Exception {
+        spillDir = new File(folder.getRoot(), "spill");
+        Properties properties = new Properties();
+        properties.setProperty("adventure.journal.dir", journalDir == null ? "" : journalDir.getPath());
+        properties.setProperty("adventure.journal.snapshotEvery", "4");
+        properties.setProperty("adventure.eviction.idleSeconds", "0");
+        properties.setProperty("adventure.eviction.maxResident", Integer.toString(maxResident));
+        properties.setProperty("adventure.eviction.sweepSeconds", "3600"); // the tests sweep themselves
+        properties.setProperty("adventure.eviction.dir", spillDir.getPath());
+        return new myAdventureService(new Leaderboard(null, 10), new ServerConfig(properties));
+    }
+
+    private int spillFiles() {
+        return spillDir.list().length;
+    }
+
+    @Test
+    public void leastRecentlyUsedGamesAreSpilled() throws Exception {
+        myAdventureService service = open(1, null);
+        int oldest = service.newGame();
+        int older = service.newGame();
+        int newest = service.newGame();
+        service.executeCommand(older, new Command("take", "hamburger"));
+        service.executeCommand(newest, new Command("go", "East"));
+
+        assertEquals(2, service.evictIdleGames());
+
+        EvictionStats stats = service.getEvictionStats();
+        assertEquals(1, stats.getResidentGames());
+        assertEquals(2, stats.getSpilledGames());
+        assertEquals(2, stats.getEvictions());
+        assertTrue(stats.getSpilledBytes() > 0);
+        assertEquals(2, spillFiles());
+        assertEquals(0, service.evictIdleGames()); // nothing left over the budget
+        service.getGame(newest);
+        assertEquals(0, service.getEvictionStats().getRehydrations());
+        service.getGame(oldest);
+        assertEquals(1, service.getEvictionStats().getRehydrations());
+    }
+
+    @Test
+    public void spilledGameIsReadBackWhenUsed() throws Exception {
+        myAdventureService service = open(1, null);
+        int id = service.newGame();
+        service.executeCommand(id, new Command("take", "hamburger"));
+        service.executeCommand(id, new Command("go", "East"));
+        GameStatus before = service.getGame(id);
+        service.newGame();
+
+        assertEquals(1, service.evictIdleGames());
+        GameStatus after = service.getGame(id);
+
+        assertEquals(before.getMessage(), after.getMessage());
+        assertEquals(asList("hamburger"), after.getCommandOptions().get("drop"));
+        assertEquals(2, service.getHistory(id, 0, 10).getRooms().size());
+        assertEquals(1, service.getEvictionStats().getRehydrations());
+        assertEquals(0, spillFiles());
+    }
+
+    @Test
+    public void destroyingSpilledGameDeletesFile() throws Exception {
+        myAdventureService service = open(1, null);
+        int id = service.newGame();
+        service.newGame();
+        service.evictIdleGames();
+
+        assertTrue(service.destroyGame(id));
+
+        assertEquals(0, spillFiles());
+        assertEquals(0, service.getEvictionStats().getSpilledGames());
+    }
+
+    @Test
+    public void spilledGamesGoIntoSnapshots() throws Exception {
+        File journalDir = folder.newFolder("journal");
+        myAdventureService service = open(1, journalDir);
+        int id = service.newGame();
+        service.executeCommand(id, new Command("take", "hamburger"));
+        int other = service.newGame();
+        service.evictIdleGames();
+        service.executeCommand(other, new Command("go", "East")); // the fourth record starts a snapshot
+        for (int i = 0; i < 500 && new File(journalDir, "journal-1.log").exists(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(new File(journalDir, "journal-1.log").exists());
+
+        myAdventureService restarted = open(0, journalDir);
+
+        assertEquals(asList("hamburger"), restarted.getGame(id).getCommandOptions().get("drop"));
+        assertTrue(restarted.getGame(other).getMessage().startsWith("You are in the west entry"));
+    }
+}
@@ -0,0 +1,79 @@
+package student.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class GameRegistryTest {
+    private final GameRegistry<String> registry = new GameRegistry<>();
+
+    @Test
+    public void addAndGet() {
+        int first = registry.add(id -> "game " + id);
+        int second = registry.add(id -> "game " + id);
+
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertEquals("game 1", registry.get(1));
+        assertNull(registry.get(2));
+    }
+
+    @Test
+    public void removeKeepsOtherGames() {
+        for (int i = 0; i < 1000; i++) {
+            registry.add(id -> "game " + id);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals("game " + i, registry.remove(i));
+        }
+
+        assertEquals(500, registry.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0 ? null : "game " + i, registry.get(i));
+        }
+    }
+
+    @Test
+    public void clearResetsIds() {
+        registry.add(id -> "game " + id);
+        registry.add(id -> "game " + id);
+        registry.clear();
+
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.add(id -> "game " + id));
+    }
+
+    @Test
+    public void concurrentAddGivesUniqueIds() throws InterruptedException {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10000; i++) {
+            pool.execute(() -> ids.add(registry.add(id -> "game " + id)));
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertEquals(10000, ids.size());
+        assertEquals(10000, registry.size());
+    }
+
+    @Test
+    public void addAllGivesContiguousRange() {
+        registry.add(id -> "game " + id);
+        int first = registry.addAll(5000, id -> "game " + id);
+        int next = registry.add(id -> "game " + id);
+
+        assertEquals(1, first);
+        assertEquals(5001, next);
+        assertEquals(5002, registry.size());
+        for (int id = 0; id <= next; id++) {
+            assertEquals("game " + id, registry.get(id));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package student.server;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Before;
+import org.junit.Test;
+import student.adventure.Json;
+import student.adventure.Layout;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GameStatusSerializerTest {
+    private final ObjectMapper mapper = Json.mapper();
+    private myAdventureService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new myAdventureService(new Leaderboard(null, 10));
+    }
+
+    /**
+     * The status as the getters describe it.
+     */
+    private JsonNode expected(GameStatus status) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("error", status.isError());
+        node.put("id", status.getId());
+        node.put("message", status.getMessage());
+        node.put("imageUrl", status.getImageUrl());
+        node.put("videoUrl", status.getVideoUrl());
+        node.set("state", mapper.valueToTree(status.getState()));
+        node.set("commandOptions", mapper.valueToTree(status.getCommandOptions()));
+        return node;
+    }
+
+    private JsonNode written(GameStatus status) throws Exception {
+        return mapper.readTree(Json.writerFor(GameStatus.class).writeValueAsString(status));
+    }
+
+    @Test
+    public void newGameIsWrittenFromItsRoom() throws Exception {
+        GameStatus status = service.getGame(service.newGame());
+
+        String json = Json.writerFor(GameStatus.class).writeValueAsString(status);
+
+        assertTrue(json.startsWith("{\"error\":false,\"id\":0,\"message\":\"You are on Matthews"));
+        assertEquals(expected(status), mapper.readTree(json));
+    }
+
+    @Test
+    public void historyMessageIsNotTheRoomDescription() throws Exception {
+        int id = service.newGame();
+        service.executeCommand(id, new Command("go", "East"));
+        service.executeCommand(id, new Command("history", ""));
+        GameStatus status = service.getGame(id);
+
+        assertTrue(status.getMessage().startsWith("you've visited: "));
+        assertEquals(expected(status), written(status));
+    }
+
+    @Test
+    public void itemsFollowTheGame() throws Exception {
+        int id = service.newGame();
+        service.executeCommand(id, new Command("take", "hamburger"));
+        GameStatus status = service.getGame(id);
+
+        JsonNode json = written(status);
+
+        assertEquals(expected(status), json);
+        assertEquals("hamburger", json.get("commandOptions").get("drop").get(0).asText());
+    }
+
+    @Test
+    public void endingRoomHasNoVideoOrOptions() throws Exception {
+        Layout.Room.Direction[] east = {new Layout.Room.Direction("East", "Hall")};
+        Layout.Room.Direction[] west = {new Layout.Room.Direction("West", "Porch")};
+        Layout layout = new Layout("Porch", "Hall", "https://example.com/video", new Layout.Room[] {
+                new Layout.Room("Porch", "A \"porch\"", east, new String[] {"mat"}, null),
+                new Layout.Room("Hall", "A hall", west, new String[0], null)});
+        int id = service.newGames(1, layout).getFirstId();
+        JsonNode start = written(service.getGame(id));
+        service.executeCommand(id, new Command("go", "East"));
+        GameStatus status = service.getGame(id);
+
+        assertEquals("A \"porch\"", start.get("message").asText());
+        assertEquals("https://example.com/video", start.get("videoUrl").asText());
+        assertEquals(expected(status), written(status));
+        assertTrue(written(status).get("videoUrl").isNull());
+        assertEquals(0, written(status).get("commandOptions").size());
+    }
+
+    @Test
+    public void statusWithoutEncodedFieldsIsWrittenInFull() throws Exception {
+        Map<String, List<String>> options = new HashMap<>();
+        options.put("go", asList("North"));
+        options.put("take", Collections.emptyList());
+        GameStatus status = new GameStatus(true, 7, "Oops", null, "video", new AdventureState(), options, 3);
+
+        assertEquals(expected(status), written(status));
+    }
+}
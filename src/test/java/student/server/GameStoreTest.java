@@ -0,0 +1,170 @@
+package student.server;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import student.adventure.Layout;
+import student.adventure.World;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+public class GameStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private myAdventureService open(File dir, int snapshotEvery) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("adventure.journal.dir", dir.getPath());
+        properties.setProperty("adventure.journal.snapshotEvery", Integer.toString(snapshotEvery));
+        properties.setProperty("adventure.eviction.idleSeconds", "0");
+        return new myAdventureService(new Leaderboard(null, 10), new ServerConfig(properties));
+    }
+
+    private static String[] files(File dir, String prefix) {
+        return dir.list((parent, name) -> name.startsWith(prefix));
+    }
+
+    @Test
+    public void gamesSurviveRestart() throws Exception {
+        File dir = folder.newFolder("journal");
+        myAdventureService service = open(dir, 1000);
+        int played = service.newGame();
+        int destroyed = service.newGame();
+        service.executeCommand(played, new Command("take", "Hamburger"));
+        service.executeCommands(played, asList(new Command("go", "East"), new Command("history", "")),
+                BatchResult.StopOn.NONE);
+        service.destroyGame(destroyed);
+        GameStatus before = service.getGame(played);
+
+        myAdventureService restarted = open(dir, 1000);
+
+        GameStatus after = restarted.getGame(played);
+        assertEquals(before.getMessage(), after.getMessage());
+        assertEquals(before.getCommandOptions(), after.getCommandOptions());
+        assertNull(restarted.getGame(destroyed));
+        assertEquals(2, restarted.newGame());
+    }
+
+    private static Layout porchAndHall() {
+        Layout.Room.Direction[] east = {new Layout.Room.Direction("East", "Hall")};
+        Layout.Room.Direction[] west = {new Layout.Room.Direction("West", "Porch")};
+        return new Layout("Porch", "Hall", null, new Layout.Room[] {
+                new Layout.Room("Porch", "A porch", east, new String[] {"mat"}, null),
+                new Layout.Room("Hall", "A hall", west, new String[0], null)});
+    }
+
+    @Test
+    public void layoutsSurviveRestart() throws Exception {
+        File dir = folder.newFolder("journal");
+        myAdventureService service = open(dir, 1000);
+        InstanceRange range = service.newGames(3, porchAndHall());
+        service.executeCommand(range.getLastId(), new Command("take", "mat"));
+
+        myAdventureService restarted = open(dir, 1000);
+
+        assertEquals("A porch", restarted.getGame(range.getFirstId()).getMessage());
+        assertEquals(asList("mat"), restarted.getGame(range.getLastId()).getCommandOptions().get("drop"));
+    }
+
+    @Test
+    public void layoutIsDroppedWithItsLastGame() throws Exception {
+        File dir = folder.newFolder("journal");
+        GameRegistry<GameSession> games = new GameRegistry<>();
+        GameStore store = new GameStore(dir, 1000, 10, () -> null, new Leaderboard(null, 10), games);
+        int first = store.newGames(2, porchAndHall(), World.compile(porchAndHall()));
+        int worldNo = games.get(first).getWorldNo();
+        int kept = store.newGames(1, porchAndHall(), World.compile(porchAndHall()));
+        int keptWorldNo = games.get(kept).getWorldNo();
+
+        games.remove(first);
+        store.destroyed(first, worldNo);
+        assertNotNull(store.world(worldNo));
+        games.remove(first + 1);
+        store.destroyed(first + 1, worldNo);
+        assertNull(store.world(worldNo));
+        store.close();
+
+        GameStore restarted = new GameStore(dir, 1000, 10, () -> null, new Leaderboard(null, 10),
+                new GameRegistry<>());
+        assertNull(restarted.world(worldNo));
+        assertNotNull(restarted.world(keptWorldNo));
+        restarted.reset(() -> { });
+        assertNull(restarted.world(keptWorldNo));
+        restarted.close();
+    }
+
+    @Test
+    public void snapshotReplacesOlderJournal() throws Exception {
+        File dir = folder.newFolder("journal");
+        myAdventureService service = open(dir, 10);
+        int id = service.newGame();
+        for (int i = 0; i < 25; i++) {
+            service.executeCommand(id, new Command("go", i % 2 == 0 ? "East" : "West"));
+        }
+        service.executeCommand(id, new Command("go", "East"));
+        GameStatus before = service.getGame(id);
+        for (int i = 0; i < 500 && new File(dir, "journal-1.log").exists(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(new File(dir, "journal-1.log").exists());
+        assertTrue(files(dir, "snapshot-").length > 0);
+        myAdventureService restarted = open(dir, 10);
+        assertEquals(before.getMessage(), restarted.getGame(id).getMessage());
+        assertEquals(service.getHistory(id, 0, 100).getRooms(), restarted.getHistory(id, 0, 100).getRooms());
+    }
+
+    @Test
+    public void tornRecordIsIgnored() throws Exception {
+        File dir = folder.newFolder("journal");
+        myAdventureService service = open(dir, 1000);
+        int id = service.newGame();
+        service.executeCommand(id, new Command("go", "East"));
+        try (FileOutputStream torn = new FileOutputStream(new File(dir, "journal-1.log"), true)) {
+            torn.write(new byte[] {0, 0, 0, 40, 3, 0}); // a record cut off by a crash
+        }
+
+        myAdventureService restarted = open(dir, 1000);
+
+        assertTrue(restarted.getGame(id).getMessage().startsWith("You are in the west entry of Siebel Center."));
+    }
+
+    @Test
+    public void resetSurvivesRestart() throws Exception {
+        File dir = folder.newFolder("journal");
+        myAdventureService service = open(dir, 1000);
+        service.newGame();
+        service.newGame();
+        service.reset();
+        service.newGame();
+
+        myAdventureService restarted = open(dir, 1000);
+
+        assertNotNull(restarted.getGame(0));
+        assertNull(restarted.getGame(1));
+        assertEquals(1, restarted.newGame());
+    }
+
+    @Test (expected = IOException.class)
+    public void unreadableSnapshotStopsStartup() throws Throwable {
+        File dir = folder.newFolder("journal");
+        try (FileOutputStream snapshot = new FileOutputStream(new File(dir, "snapshot-3.bin"))) {
+            snapshot.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        }
+        try {
+            open(dir, 1000);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
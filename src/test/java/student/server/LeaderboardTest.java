@@ -0,0 +1,69 @@
+package student.server;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.SortedMap;
+
+public class LeaderboardTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void bestScoresFirst() throws Exception {
+        Leaderboard leaderboard = new Leaderboard(null, 3);
+        leaderboard.record("carol", 500);
+        leaderboard.record("alice", 900);
+        leaderboard.record("bob", 700);
+        leaderboard.record("alice", 600); // not her best; ignored
+        leaderboard.record("dave", 100);  // not good enough for the top 3
+
+        SortedMap<String, Integer> top = leaderboard.getTop();
+
+        assertEquals(asList("alice", "bob", "carol"), new ArrayList<>(top.keySet()));
+        assertEquals(Integer.valueOf(900), top.get("alice"));
+        assertNull(top.get("dave"));
+    }
+
+    @Test
+    public void betterScoreMovesPlayerUp() throws Exception {
+        Leaderboard leaderboard = new Leaderboard(null, 2);
+        leaderboard.record("alice", 300);
+        leaderboard.record("bob", 200);
+        leaderboard.record("bob", 400);
+
+        assertEquals(asList("bob", "alice"), new ArrayList<>(leaderboard.getTop().keySet()));
+    }
+
+    @Test
+    public void scoresSurviveRestart() throws Exception {
+        String file = folder.newFile("scores.db").getPath();
+        Leaderboard leaderboard = new Leaderboard(file, 10);
+        leaderboard.record("alice", 900);
+        leaderboard.record("bob", 700);
+        leaderboard.close();
+
+        Leaderboard reopened = new Leaderboard(file, 10);
+        reopened.record("bob", 100);
+        reopened.close();
+        Leaderboard all = new Leaderboard(file, 10);
+        Leaderboard first = new Leaderboard(file, 1);
+
+        assertEquals(Integer.valueOf(700), all.getTop().get("bob"));
+        assertEquals(asList("alice"), new ArrayList<>(first.getTop().keySet()));
+        all.close();
+        first.close();
+    }
+
+    @Test
+    public void scoreGoesDownWithMoves() {
+        assertEquals(Leaderboard.MAX_SCORE, Leaderboard.score(0));
+        assertEquals(Leaderboard.MAX_SCORE - 3 * Leaderboard.MOVE_PENALTY, Leaderboard.score(3));
+        assertEquals(1, Leaderboard.score(1_000_000));
+    }
+}
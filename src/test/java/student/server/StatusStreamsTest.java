@@ -0,0 +1,187 @@
+package student.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.junit.Test;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StatusStreamsTest {
+    private static final Sse SSE = new Sse() {
+        @Override
+        public OutboundSseEvent.Builder newEventBuilder() {
+            return new OutboundEvent.Builder();
+        }
+
+        @Override
+        public SseBroadcaster newBroadcaster() {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    /**
+     * A client that keeps every event it gets. Sending waits until the client is let go.
+     */
+    private static class Client implements SseEventSink {
+        final List<OutboundSseEvent> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch go;
+        volatile boolean closed;
+
+        Client(boolean slow) {
+            go = new CountDownLatch(slow ? 1 : 0);
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public CompletionStage<?> send(OutboundSseEvent event) {
+            try {
+                go.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            events.add(event);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        void awaitLast(String id) throws InterruptedException {
+            for (int i = 0; i < 500 && !id.equals(last(this)); i++) {
+                Thread.sleep(10);
+            }
+        }
+
+        void awaitEvents(int count) throws InterruptedException {
+            for (int i = 0; i < 500 && events.size() < count; i++) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static String last(Client client) {
+        List<OutboundSseEvent> events = client.events;
+        return events.isEmpty() ? null : events.get(events.size() - 1).getId();
+    }
+
+    private static GameStatus status(int id, long version) {
+        return new GameStatus(false, id, "room " + version, null, null, new AdventureState(),
+                Collections.emptyMap(), version);
+    }
+
+    @Test
+    public void everySubscriberGetsTheSameEvent() throws InterruptedException {
+        StatusStreams streams = new StatusStreams(4, 2);
+        Client first = new Client(false);
+        Client second = new Client(false);
+        assertTrue(streams.subscribe(7, first, SSE, () -> status(7, 1)));
+        assertTrue(streams.subscribe(7, second, SSE, () -> status(7, 1)));
+
+        streams.publish(status(7, 2));
+        streams.publish(status(7, 1)); // older than what was sent; ignored
+        first.awaitEvents(2);
+        second.awaitEvents(2);
+
+        assertEquals(2, first.events.size());
+        assertEquals(2, second.events.size());
+        assertSame(first.events.get(1), second.events.get(1));
+        assertEquals("2", first.events.get(1).getId());
+        assertTrue(((String) first.events.get(1).getData()).contains("\"message\":\"room 2\""));
+    }
+
+    @Test
+    public void slowSubscriberDropsOldStates() throws InterruptedException {
+        StatusStreams streams = new StatusStreams(2, 2);
+        Client slow = new Client(true);
+        Client fast = new Client(false);
+        streams.subscribe(1, slow, SSE, () -> status(1, 1));
+        streams.subscribe(1, fast, SSE, () -> status(1, 1));
+
+        for (long version = 2; version <= 100; version++) {
+            streams.publish(status(1, version));
+        }
+        // the slow client holds one state in its writer and two in its queue; the rest were dropped
+        Thread.sleep(100);
+        assertEquals(0, slow.events.size());
+        slow.go.countDown();
+        slow.awaitLast("100");
+        fast.awaitLast("100");
+
+        assertTrue(slow.events.size() <= 3);
+        assertEquals("100", last(fast));
+        assertEquals(100 - slow.events.size() + 100 - fast.events.size(), streams.getDropped());
+    }
+
+    @Test
+    public void waitingSendHoldsNoWriter() throws InterruptedException {
+        StatusStreams streams = new StatusStreams(2, 1);
+        CompletableFuture<Void> delivered = new CompletableFuture<>();
+        Client waiting = new Client(false) {
+            @Override
+            public CompletionStage<?> send(OutboundSseEvent event) {
+                events.add(event);
+                return delivered; // the client hasn't taken it yet
+            }
+        };
+        Client fast = new Client(false);
+        streams.subscribe(1, waiting, SSE, () -> status(1, 1));
+        streams.subscribe(1, fast, SSE, () -> status(1, 1));
+
+        for (long version = 2; version <= 10; version++) {
+            streams.publish(status(1, version));
+        }
+        // the only writer thread is free for the fast client while the waiting one's send is pending
+        fast.awaitLast("10");
+        assertEquals("10", last(fast));
+        assertEquals(1, waiting.events.size());
+
+        delivered.complete(null);
+        waiting.awaitLast("10");
+        assertEquals("10", last(waiting));
+    }
+
+    @Test
+    public void unknownGameClosesStream() {
+        StatusStreams streams = new StatusStreams(4, 2);
+        Client client = new Client(false);
+
+        assertFalse(streams.subscribe(3, client, SSE, () -> null));
+        assertTrue(client.isClosed());
+        assertEquals(0, streams.getSubscriberCount(3));
+    }
+
+    @Test
+    public void closeEndsStreams() throws InterruptedException {
+        StatusStreams streams = new StatusStreams(4, 2);
+        Client client = new Client(false);
+        streams.subscribe(5, client, SSE, () -> status(5, 1));
+        client.awaitEvents(1);
+
+        streams.close(5);
+        streams.publish(status(5, 2));
+
+        assertTrue(client.isClosed());
+        assertEquals(0, streams.getSubscriberCount(5));
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(1, client.events.size());
+    }
+}
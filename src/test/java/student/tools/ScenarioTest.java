@@ -0,0 +1,65 @@
+package student.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.Random;
+
+public class ScenarioTest {
+    private static Properties mix() {
+        Properties properties = new Properties();
+        properties.setProperty("operation.look", "3 status");
+        properties.setProperty("operation.east", "1 command go East");
+        properties.setProperty("operation.key", "0 command take frontdoor key");
+        properties.setProperty("adventure.journal.dir", "");
+        return properties;
+    }
+
+    @Test
+    public void operationsAreParsedAndSorted() {
+        Scenario scenario = new Scenario(mix());
+
+        assertNull(scenario.target);
+        assertEquals(3, scenario.operations.size());
+        Scenario.Operation east = scenario.operations.get(0);
+        assertEquals("east", east.name);
+        assertEquals("POST", east.method);
+        assertEquals("instance/7/command", east.path(7));
+        assertEquals("frontdoor key", scenario.operations.get(1).json.split("\"commandValue\":\"")[1].split("\"")[0]);
+        assertEquals("instance/7", scenario.operations.get(2).path(7));
+        assertEquals("", scenario.serverSettings.getProperty("adventure.journal.dir"));
+    }
+
+    @Test
+    public void operationsArePickedByWeight() {
+        Scenario scenario = new Scenario(mix());
+        Random random = new Random(1);
+        int looks = 0;
+        for (int i = 0; i < 4000; i++) {
+            Scenario.Operation operation = scenario.pick(random);
+            assertFalse(operation.name.equals("key"));
+            if (operation.name.equals("look")) {
+                looks++;
+            }
+        }
+        assertEquals(3000, looks, 150);
+    }
+
+    @Test
+    public void targetGetsTrailingSlash() {
+        Properties properties = mix();
+        properties.setProperty("target", "http://localhost:8081/adventure/v1");
+
+        assertEquals("http://localhost:8081/adventure/v1/", new Scenario(properties).target);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void unknownOperationIsRejected() {
+        Properties properties = mix();
+        properties.setProperty("operation.fly", "2 teleport");
+        new Scenario(properties);
+    }
+}
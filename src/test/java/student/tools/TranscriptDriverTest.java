@@ -0,0 +1,58 @@
+package student.tools;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import student.adventure.Adventure;
+import student.adventure.CommandType;
+import student.adventure.World;
+
+import java.util.Collections;
+
+public class TranscriptDriverTest {
+    private static final String MAP = "src/main/java/student/myAdventureMap.json";
+
+    @Test
+    public void commentsAndBlankLinesAreSkipped() {
+        TranscriptDriver.Transcript transcript = new TranscriptDriver.Transcript("t",
+                asList("# a comment", "", "  go East ", "dance", "history"));
+
+        assertArrayEquals(new String[] {"go East", "dance", "history"}, transcript.commands);
+        assertEquals(CommandType.GO.ordinal(), transcript.types[0]);
+        assertEquals(CommandType.values().length, transcript.types[1]);
+        assertEquals(CommandType.HISTORY.ordinal(), transcript.types[2]);
+    }
+
+    @Test
+    public void sessionsStopWhenTheGameIsWon() throws Exception {
+        World world = Adventure.loadWorld(MAP);
+        TranscriptDriver.Transcript transcript = new TranscriptDriver.Transcript("win",
+                asList("take hamburger", "go South", "go North"));
+
+        TranscriptDriver.Result result = new TranscriptDriver(world, Collections.singletonList(transcript), 4)
+                .play(100);
+
+        assertEquals(100, result.sessions);
+        assertEquals(100, result.wins);
+        assertEquals(200, result.commands);
+        assertEquals(100, result.latencies[CommandType.TAKE.ordinal()].getCount());
+        assertEquals(100, result.latencies[CommandType.GO.ordinal()].getCount());
+    }
+
+    @Test
+    public void transcriptsAreTakenInTurn() throws Exception {
+        World world = Adventure.loadWorld(MAP);
+        TranscriptDriver.Transcript moves = new TranscriptDriver.Transcript("moves",
+                asList("go East", "go Nowhere", "quit", "go West"));
+        TranscriptDriver.Transcript looks = new TranscriptDriver.Transcript("looks", asList("history"));
+
+        TranscriptDriver.Result result = new TranscriptDriver(world, asList(moves, looks), 3).play(10);
+
+        assertEquals(10, result.sessions);
+        assertEquals(0, result.wins);
+        assertEquals(5 * 3 + 5, result.commands);
+        assertEquals(5, result.failures);
+        assertEquals(5, result.latencies[CommandType.QUIT.ordinal()].getCount());
+    }
+}